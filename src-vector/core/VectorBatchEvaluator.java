@@ -0,0 +1,175 @@
+package core;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorBatchEvaluator scores a block of packed positions with the Vector API
+ *
+ * Each lane holds one position.  Row counts come from a SWAR population count,
+ * so material and advancement share the same partial sums.  Scores are identical
+ * to the scalar BatchEvaluator.  Requires --add-modules jdk.incubator.vector,
+ * so it lives in src-vector and is only compiled by the vector build.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-03
+ */
+public class VectorBatchEvaluator extends BatchEvaluator {
+
+	/** The widest species supported by the CPU */
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/** Advancement weights for X checkers on rows 1, 3, 5 and 7, one per byte. */
+	private static final int X_ADVANCE_ODD = 0x00020406;
+
+	/** Advancement weights for X checkers on rows 2, 4, 6 and 8, one per byte. */
+	private static final int X_ADVANCE_EVEN = 0x01030507;
+
+	/** Advancement weights for O checkers on rows 1, 3, 5 and 7, one per byte. */
+	private static final int O_ADVANCE_ODD = 0x07050301;
+
+	/** Advancement weights for O checkers on rows 2, 4, 6 and 8, one per byte. */
+	private static final int O_ADVANCE_EVEN = 0x06040200;
+
+
+	/**
+	 * Constructor
+	 * @param weights The weights of each evaluation term.
+	 */
+	public VectorBatchEvaluator(EvaluationWeights weights) {
+		super(weights);
+	}
+
+	/**
+	 * Scores the positions of a block from an index to the end of the block.
+	 * Whole vectors are scored in lanes, the tail is scored by the scalar code.
+	 * @param block The block of positions.
+	 * @param start The index of the first position to score.
+	 */
+	@Override
+	protected void evaluate(PositionBlock block, int start) {
+		int step = SPECIES.length();
+		int i = start;
+		for (; i + step <= block.size; i += step) {
+			IntVector x = IntVector.fromArray(SPECIES, block.x, i);
+			IntVector o = IntVector.fromArray(SPECIES, block.o, i);
+			IntVector empty = x.or(o).not();
+
+			//per row counts, one row per nibble
+			IntVector xRows = rowCounts(x);
+			IntVector oRows = rowCounts(o);
+			IntVector xOdd = xRows.and(0x0F0F0F0F);
+			IntVector xEven = xRows.lanewise(VectorOperators.LSHR, 4).and(0x0F0F0F0F);
+			IntVector oOdd = oRows.and(0x0F0F0F0F);
+			IntVector oEven = oRows.lanewise(VectorOperators.LSHR, 4).and(0x0F0F0F0F);
+
+			IntVector material = sumBytes(xOdd.add(xEven)).sub(sumBytes(oOdd.add(oEven)));
+			IntVector advancement = weightedSum(xOdd, X_ADVANCE_ODD).add(weightedSum(xEven, X_ADVANCE_EVEN))
+					.sub(weightedSum(oOdd, O_ADVANCE_ODD)).sub(weightedSum(oEven, O_ADVANCE_EVEN));
+
+			IntVector xMobility = popCount(xLeft(x).and(empty))
+					.add(popCount(xRight(x).and(empty)))
+					.add(popCount(xLeft(xLeft(x).and(o)).and(empty)))
+					.add(popCount(xRight(xRight(x).and(o)).and(empty)));
+			IntVector oMobility = popCount(oLeft(o).and(empty))
+					.add(popCount(oRight(o).and(empty)))
+					.add(popCount(oLeft(oLeft(o).and(x)).and(empty)))
+					.add(popCount(oRight(oRight(o).and(x)).and(empty)));
+
+			material.mul(weights.material)
+					.add(advancement.mul(weights.advancement))
+					.add(xMobility.sub(oMobility).mul(weights.mobility))
+					.intoArray(block.scores, i);
+		}
+		super.evaluate(block, i);
+	}
+
+	/**
+	 * Counts the bits of each nibble of each lane.
+	 * @param v The lanes.
+	 * @return The lanes with each nibble replaced by its bit count.
+	 */
+	private static IntVector rowCounts(IntVector v) {
+		v = v.sub(v.lanewise(VectorOperators.LSHR, 1).and(0x55555555));
+		return v.and(0x33333333).add(v.lanewise(VectorOperators.LSHR, 2).and(0x33333333));
+	}
+
+	/**
+	 * Adds the four bytes of each lane.
+	 * @param v The lanes, each byte small enough that the sum fits in a byte.
+	 * @return The sum of the bytes of each lane.
+	 */
+	private static IntVector sumBytes(IntVector v) {
+		return v.mul(0x01010101).lanewise(VectorOperators.LSHR, 24);
+	}
+
+	/**
+	 * Multiplies the four bytes of each lane by four weights and adds them.
+	 * @param v         The lanes.
+	 * @param weights   The weights, the weight of the lowest byte in the highest byte.
+	 * @return The weighted sum of each lane.
+	 */
+	private static IntVector weightedSum(IntVector v, int weights) {
+		return v.mul(weights).lanewise(VectorOperators.LSHR, 24);
+	}
+
+	/**
+	 * Counts the bits of each lane.
+	 * @param v The lanes.
+	 * @return The bit count of each lane.
+	 */
+	private static IntVector popCount(IntVector v) {
+		v = rowCounts(v);
+		return sumBytes(v.add(v.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F));
+	}
+
+	/**
+	 * Lane version of Bitboards.xLeft.
+	 * @param v The masks.
+	 * @return The shifted masks.
+	 */
+	private static IntVector xLeft(IntVector v) {
+		return v.and(Bitboards.ODD_ROWS & ~Bitboards.LEFT_EDGE).lanewise(VectorOperators.LSHL, 3)
+				.or(v.and(Bitboards.EVEN_ROWS).lanewise(VectorOperators.LSHL, 4));
+	}
+
+	/**
+	 * Lane version of Bitboards.xRight.
+	 * @param v The masks.
+	 * @return The shifted masks.
+	 */
+	private static IntVector xRight(IntVector v) {
+		return v.and(Bitboards.ODD_ROWS).lanewise(VectorOperators.LSHL, 4)
+				.or(v.and(Bitboards.EVEN_ROWS & ~Bitboards.RIGHT_EDGE).lanewise(VectorOperators.LSHL, 5));
+	}
+
+	/**
+	 * Lane version of Bitboards.oLeft.
+	 * @param v The masks.
+	 * @return The shifted masks.
+	 */
+	private static IntVector oLeft(IntVector v) {
+		return v.and(Bitboards.ODD_ROWS & ~Bitboards.LEFT_EDGE).lanewise(VectorOperators.LSHR, 5)
+				.or(v.and(Bitboards.EVEN_ROWS).lanewise(VectorOperators.LSHR, 4));
+	}
+
+	/**
+	 * Lane version of Bitboards.oRight.
+	 * @param v The masks.
+	 * @return The shifted masks.
+	 */
+	private static IntVector oRight(IntVector v) {
+		return v.and(Bitboards.ODD_ROWS).lanewise(VectorOperators.LSHR, 4)
+				.or(v.and(Bitboards.EVEN_ROWS & ~Bitboards.RIGHT_EDGE).lanewise(VectorOperators.LSHR, 3));
+	}
+
+	/**
+	 * Gets the name of the implementation.
+	 * @return The name.
+	 */
+	@Override
+	public String getName() {
+		return "vector " + SPECIES.vectorBitSize() + "-bit";
+	}
+}
@@ -0,0 +1,621 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * AlphaBetaSearch finds the best move in a packed position with an iterative
+ * deepening negamax search
+ *
+ * Results are stored in an AnalysisCache and reused, both within a search and
+ * across searches.  When the cache already holds an exact result for the root
+ * at the requested depth the move is returned without searching.  The last ply
+ * is scored one block at a time by a BatchEvaluator, except positions in the
+ * middle of a capture exchange, which a capture-only quiescence search follows
+ * until they are quiet.
+ *
+ * Moves are tried in order: the cached best move, jumps, the two killer moves
+ * of the ply, which last caused a cutoff there, then the other moves by how
+ * often they caused cutoffs anywhere in the search.
+ *
+ * Interrupting the searching thread stops the search within about a thousand
+ * nodes, even part way through the first iteration, so a search can be
+ * run in the background and abandoned the moment it is no longer wanted.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-02
+ */
+public class AlphaBetaSearch implements Engine {
+
+	/** The score of a won position */
+	public static final int WIN = 100000;
+
+	/** The deepest ply the search can reach */
+	public static final int MAX_PLY = 128;
+
+	/** A score larger than any real score */
+	private static final int INFINITY = WIN + 1;
+
+	/** Evaluator used to score the last ply */
+	private final BatchEvaluator evaluator;
+
+	/** Cache of results */
+	private final AnalysisCache cache;
+
+	/** Ordering score of a move saved in the cache */
+	private static final int HASH_MOVE_ORDER = 1 << 30;
+
+	/** Ordering score of a jump */
+	private static final int JUMP_ORDER = 1 << 29;
+
+	/** Ordering score of the first killer move, the second is one less */
+	private static final int KILLER_ORDER = 1 << 28;
+
+	/** History score above which every history score is halved */
+	private static final int HISTORY_LIMIT = 1 << 20;
+
+	/** The moves generated at each ply */
+	private final int[][] moveStack = new int[MAX_PLY][Bitboards.MAX_MOVES];
+
+	/** The ordering score of each move generated at each ply */
+	private final int[][] orderStack = new int[MAX_PLY][Bitboards.MAX_MOVES];
+
+	/** The two most recent quiet moves to cause a cutoff at each ply */
+	private final int[][] killers = new int[MAX_PLY][2];
+
+	/** How much each quiet move has caused cutoffs, indexed by side, starting square and landing square */
+	private final int[] moveHistory = new int[2 * Bitboards.SQUARES * Bitboards.SQUARES];
+
+	/** If moves are ordered, otherwise they are tried as generated */
+	private boolean ordering = true;
+
+	/** If capture exchanges on the last ply are followed */
+	private boolean quiescence = true;
+
+	/** The positions reached from a node on the last ply */
+	private final PositionBlock leaves = new PositionBlock(Bitboards.MAX_MOVES);
+
+	/** The number of positions visited by the current search */
+	private long nodes;
+
+	/** The best move found at the root by the last iteration */
+	private int rootMove;
+
+	/** The number of positions the current search may visit */
+	private long nodeLimit;
+
+	/** The time from System.nanoTime() at which the current search must stop */
+	private long deadline;
+
+	/** The number of budget checks, so the clock and interrupt status are only read every 1024th time */
+	private long polls;
+
+	/** If the current search may stop part way through an iteration */
+	private boolean canAbort;
+
+	/** If the current iteration ran out of budget and must be discarded */
+	private boolean aborted;
+
+	/** The positions of the game before the root, null if draws are not scored */
+	private PositionHistory history;
+
+	/** Told about each completed iteration, null if there is none */
+	private SearchListener listener;
+
+
+	/**
+	 * Constructor
+	 * @param evaluator The evaluator used to score the last ply.
+	 * @param cache     The cache of results.
+	 */
+	public AlphaBetaSearch(BatchEvaluator evaluator, AnalysisCache cache) {
+		this.evaluator = evaluator;
+		this.cache = cache;
+	}
+
+	/**
+	 * Searches a position to a fixed depth.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param maxDepth  The depth to search to, 1 to MAX_PLY - 1.
+	 * @return The result of the search.
+	 */
+	public SearchResult search(int x, int o, boolean xToMove, int maxDepth) {
+		return search(x, o, xToMove, SearchLimits.depth(maxDepth));
+	}
+
+	/**
+	 * Searches a position with iterative deepening until the limits are reached.
+	 * The first iteration always completes so there is always a move, unless the thread is interrupted.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param limits    When to stop searching.
+	 * @return The result of the deepest completed iteration.
+	 */
+	@Override
+	public SearchResult search(int x, int o, boolean xToMove, SearchLimits limits) {
+		long start = System.nanoTime();
+		long hash = Zobrist.hash(x, o, xToMove);
+		int maxDepth = Math.min(limits.getDepth(), MAX_PLY - 1);
+		nodes = 0;
+		nodeLimit = limits.getNodes();
+		deadline = limits.deadline(start);
+		canAbort = false;
+		aborted = false;
+		for (int[] killer : killers) {
+			killer[0] = 0;
+			killer[1] = 0;
+		}
+		ageHistory();
+
+		long cached = cache.probe(hash);
+		if (cached != 0 && AnalysisCache.bound(cached) == AnalysisCache.EXACT
+				&& AnalysisCache.depth(cached) >= maxDepth && isLegal(x, o, xToMove, AnalysisCache.move(cached))) {
+			return new SearchResult(AnalysisCache.move(cached), AnalysisCache.score(cached),
+					AnalysisCache.depth(cached), 0, System.nanoTime() - start);
+		}
+
+		int score = 0;
+		int bestMove = 0;
+		int depth = 0;
+		for (int d = 1; d <= maxDepth; d++) {
+			rootMove = 0;
+			int iterationScore = negamax(x, o, xToMove, hash, d, -INFINITY, INFINITY, 0);
+			if (aborted) break;
+			score = iterationScore;
+			bestMove = rootMove;
+			depth = d;
+			canAbort = true;
+			if (listener != null) {
+				listener.iterationCompleted(new SearchResult(bestMove, score, depth, nodes, System.nanoTime() - start),
+						principalVariation(x, o, xToMove, hash, depth));
+			}
+			if (Math.abs(score) > WIN - MAX_PLY) break;		//result is already decided
+		}
+		if (depth > 0) {
+			cache.store(hash, score, depth, AnalysisCache.EXACT, bestMove);
+		}
+		return new SearchResult(bestMove, score, depth, nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Checks if the current search has used up its budget.
+	 * @return If the search must stop.
+	 */
+	private boolean outOfBudget() {
+		if ((++polls & 1023) != 0) {
+			return canAbort && nodes >= nodeLimit;
+		}
+		return Thread.currentThread().isInterrupted() || canAbort && (nodes >= nodeLimit || System.nanoTime() >= deadline);
+	}
+
+	/**
+	 * Follows the best moves saved in the cache from the root after an iteration.
+	 * The line stops early where the cache no longer holds a legal move or a position repeats.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param hash      The hash of the root.
+	 * @param depth     The depth of the iteration, the longest the line can be.
+	 * @return The moves of the line.
+	 */
+	private int[] principalVariation(int x, int o, boolean xToMove, long hash, int depth) {
+		int[] line = new int[depth];
+		long[] seen = new long[depth];
+		int length = 0;
+		int move = rootMove;
+		while (length < depth && move != 0 && isLegal(x, o, xToMove, move)) {
+			line[length] = move;
+			seen[length++] = hash;
+			hash = Zobrist.play(hash, move, xToMove);
+			if (xToMove) {
+				x = Bitboards.moveMover(x, move);
+				o = Bitboards.moveOpponent(o, move);
+			} else {
+				x = Bitboards.moveOpponent(x, move);
+				o = Bitboards.moveMover(o, move);
+			}
+			xToMove = ! xToMove;
+			long cached = cache.probe(hash);
+			move = cached == 0 ? 0 : AnalysisCache.move(cached);
+			for (int i = 0; i < length; i++) {
+				if (seen[i] == hash) {
+					move = 0;
+				}
+			}
+		}
+		return Arrays.copyOf(line, length);
+	}
+
+	/**
+	 * Searches a node.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param hash      The hash of the position.
+	 * @param depth     The remaining depth, at least 1.
+	 * @param alpha     The lower bound.
+	 * @param beta      The upper bound.
+	 * @param ply       The distance from the root.
+	 * @return The score from the point of view of the side to move.
+	 */
+	private int negamax(int x, int o, boolean xToMove, long hash, int depth, int alpha, int beta, int ply) {
+		nodes++;
+		if (aborted || outOfBudget()) {
+			aborted = true;
+			return 0;
+		}
+		if (ply > 0 && history != null && (history.isRepetition() || history.isDraw())) {
+			return 0;
+		}
+		long cached = cache.probe(hash);
+		if (ply > 0) {
+			if (cached != 0 && AnalysisCache.depth(cached) >= depth) {
+				int score = fromCache(AnalysisCache.score(cached), ply);
+				int bound = AnalysisCache.bound(cached);
+				if (bound == AnalysisCache.EXACT
+						|| bound == AnalysisCache.LOWER && score >= beta
+						|| bound == AnalysisCache.UPPER && score <= alpha) {
+					return score;
+				}
+			}
+		}
+
+		int[] moves = moveStack[ply];
+		int count = Bitboards.generateMoves(x, o, xToMove, moves);
+		if (count == 0) {
+			return -WIN + ply;			//no moves left, the side to move has lost
+		}
+		if (depth == 1 || ply == MAX_PLY - 1) {
+			return scoreLeaves(x, o, xToMove, moves, count, alpha, beta, ply);
+		}
+		if (ordering) {
+			scoreMoves(moves, count, cached != 0 ? AnalysisCache.move(cached) : 0, xToMove, ply);
+		}
+
+		int alphaStart = alpha;
+		int best = -INFINITY;
+		int bestMove = 0;
+		for (int i = 0; i < count; i++) {
+			if (ordering) {
+				selectMove(moves, orderStack[ply], i, count);
+			}
+			int move = moves[i];
+			long childHash = Zobrist.play(hash, move, xToMove);
+			if (history != null) {
+				history.push(childHash, true);		//every move advances a checker
+			}
+			int score;
+			if (xToMove) {
+				score = -negamax(Bitboards.moveMover(x, move), Bitboards.moveOpponent(o, move), false,
+						childHash, depth - 1, -beta, -alpha, ply + 1);
+			} else {
+				score = -negamax(Bitboards.moveOpponent(x, move), Bitboards.moveMover(o, move), true,
+						childHash, depth - 1, -beta, -alpha, ply + 1);
+			}
+			if (history != null) {
+				history.pop();
+			}
+			if (aborted) return 0;
+			if (score > best) {
+				best = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						recordCutoff(move, xToMove, depth, ply);
+						break;
+					}
+				}
+			}
+		}
+
+		if (ply == 0) {
+			rootMove = bestMove;
+		}
+		int bound = best <= alphaStart ? AnalysisCache.UPPER : best >= beta ? AnalysisCache.LOWER : AnalysisCache.EXACT;
+		cache.store(hash, toCache(best, ply), depth, bound, bestMove);
+		return best;
+	}
+
+	/**
+	 * Scores every move of a node on the last ply as one block.
+	 * A position where the side to move can jump is scored by a quiescence search instead.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param moves     The legal moves.
+	 * @param count     The number of legal moves.
+	 * @param alpha     The lower bound.
+	 * @param beta      The upper bound.
+	 * @param ply       The distance from the root.
+	 * @return The best score from the point of view of the side to move.
+	 */
+	private int scoreLeaves(int x, int o, boolean xToMove, int[] moves, int count, int alpha, int beta, int ply) {
+		leaves.clear();
+		for (int i = 0; i < count; i++) {
+			if (xToMove) {
+				leaves.add(Bitboards.moveMover(x, moves[i]), Bitboards.moveOpponent(o, moves[i]));
+			} else {
+				leaves.add(Bitboards.moveOpponent(x, moves[i]), Bitboards.moveMover(o, moves[i]));
+			}
+		}
+		evaluator.evaluate(leaves);
+		nodes += count;
+
+		int best = -INFINITY;
+		int bestMove = 0;
+		for (int i = 0; i < count; i++) {
+			int score;
+			int childX = leaves.x[i];
+			int childO = leaves.o[i];
+			if (xToMove) {
+				score = Bitboards.oMobility(childX, childO) == 0 ? WIN - ply - 1 : leaves.scores[i];
+			} else {
+				score = Bitboards.xMobility(childX, childO) == 0 ? WIN - ply - 1 : -leaves.scores[i];
+			}
+			if (quiescence && ply < MAX_PLY - 2 && score < WIN - MAX_PLY && canJump(childX, childO, ! xToMove)) {
+				score = -quiesce(childX, childO, ! xToMove, -beta, -alpha, ply + 1);
+			}
+			if (score > best) {
+				best = score;
+				bestMove = moves[i];
+				if (best >= beta) break;
+				alpha = Math.max(alpha, best);
+			}
+		}
+		if (ply == 0) {
+			rootMove = bestMove;
+		}
+		return best;
+	}
+
+	/**
+	 * Searches only jumps until the position is quiet, letting the side to move stand on its score instead.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param alpha     The lower bound.
+	 * @param beta      The upper bound.
+	 * @param ply       The distance from the root.
+	 * @return The score from the point of view of the side to move.
+	 */
+	private int quiesce(int x, int o, boolean xToMove, int alpha, int beta, int ply) {
+		nodes++;
+		int[] moves = moveStack[ply];
+		int count = Bitboards.generateMoves(x, o, xToMove, moves);
+		if (count == 0) {
+			return -WIN + ply;			//no moves left, the side to move has lost
+		}
+		int best = evaluator.evaluate(x, o);
+		if (! xToMove) {
+			best = -best;
+		}
+		if (best >= beta || ply == MAX_PLY - 1) {
+			return best;
+		}
+		alpha = Math.max(alpha, best);
+		for (int i = 0; i < count && Bitboards.isJump(moves[i]); i++) {		//jumps are generated first
+			int move = moves[i];
+			int score;
+			if (xToMove) {
+				score = -quiesce(Bitboards.moveMover(x, move), Bitboards.moveOpponent(o, move), false, -beta, -alpha, ply + 1);
+			} else {
+				score = -quiesce(Bitboards.moveOpponent(x, move), Bitboards.moveMover(o, move), true, -beta, -alpha, ply + 1);
+			}
+			if (score > best) {
+				best = score;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) break;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Checks if a side has a jump available.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If the side is X.
+	 * @return If the side can jump.
+	 */
+	private static boolean canJump(int x, int o, boolean xToMove) {
+		int empty = ~(x | o);
+		if (xToMove) {
+			return ((Bitboards.xLeft(Bitboards.xLeft(x) & o) | Bitboards.xRight(Bitboards.xRight(x) & o)) & empty) != 0;
+		}
+		return ((Bitboards.oLeft(Bitboards.oLeft(o) & x) | Bitboards.oRight(Bitboards.oRight(o) & x)) & empty) != 0;
+	}
+
+	/**
+	 * Gives each move of a node its ordering score.
+	 * @param moves     The moves.
+	 * @param count     The number of moves.
+	 * @param hashMove  The best move saved in the cache, 0 if there is none.
+	 * @param xToMove   If X is the side to move.
+	 * @param ply       The distance from the root.
+	 */
+	private void scoreMoves(int[] moves, int count, int hashMove, boolean xToMove, int ply) {
+		int[] order = orderStack[ply];
+		int[] killer = killers[ply];
+		int side = xToMove ? 0 : Bitboards.SQUARES * Bitboards.SQUARES;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (move == hashMove) {
+				order[i] = HASH_MOVE_ORDER;
+			} else if (Bitboards.isJump(move)) {
+				order[i] = JUMP_ORDER;
+			} else if (move == killer[0]) {
+				order[i] = KILLER_ORDER;
+			} else if (move == killer[1]) {
+				order[i] = KILLER_ORDER - 1;
+			} else {
+				order[i] = moveHistory[side + Bitboards.from(move) * Bitboards.SQUARES + Bitboards.to(move)];
+			}
+		}
+	}
+
+	/**
+	 * Moves the best scored of the untried moves to the next place to try.
+	 * @param moves The moves.
+	 * @param order The ordering score of each move.
+	 * @param next  The place of the next move to try.
+	 * @param count The number of moves.
+	 */
+	private static void selectMove(int[] moves, int[] order, int next, int count) {
+		int best = next;
+		for (int i = next + 1; i < count; i++) {
+			if (order[i] > order[best]) {
+				best = i;
+			}
+		}
+		if (best != next) {
+			int move = moves[best];
+			moves[best] = moves[next];
+			moves[next] = move;
+			int score = order[best];
+			order[best] = order[next];
+			order[next] = score;
+		}
+	}
+
+	/**
+	 * Remembers a quiet move which caused a cutoff as a killer move and in the history table.
+	 * @param move      The move.
+	 * @param xToMove   If X made the move.
+	 * @param depth     The remaining depth of the node.
+	 * @param ply       The distance from the root.
+	 */
+	private void recordCutoff(int move, boolean xToMove, int depth, int ply) {
+		if (Bitboards.isJump(move)) {
+			return;		//jumps are tried early anyway
+		}
+		int[] killer = killers[ply];
+		if (killer[0] != move) {
+			killer[1] = killer[0];
+			killer[0] = move;
+		}
+		int index = (xToMove ? 0 : Bitboards.SQUARES * Bitboards.SQUARES)
+				+ Bitboards.from(move) * Bitboards.SQUARES + Bitboards.to(move);
+		moveHistory[index] += depth * depth;
+		if (moveHistory[index] > HISTORY_LIMIT) {
+			ageHistory();
+		}
+	}
+
+	/**
+	 * Halves every history score, so older cutoffs count for less.
+	 */
+	private void ageHistory() {
+		for (int i = 0; i < moveHistory.length; i++) {
+			moveHistory[i] >>= 1;
+		}
+	}
+
+	/**
+	 * Checks if a move is legal in a position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param move      The encoded move.
+	 * @return If the move is legal.
+	 */
+	private boolean isLegal(int x, int o, boolean xToMove, int move) {
+		int[] moves = moveStack[0];
+		int count = Bitboards.generateMoves(x, o, xToMove, moves);
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Converts a score relative to the root into one relative to the node, for storing.
+	 * @param score The score.
+	 * @param ply   The distance from the root.
+	 * @return The score to store.
+	 */
+	static int toCache(int score, int ply) {
+		if (score > WIN - MAX_PLY) return score + ply;
+		if (score < -WIN + MAX_PLY) return score - ply;
+		return score;
+	}
+
+	/**
+	 * Converts a stored score relative to the node into one relative to the root.
+	 * @param score The stored score.
+	 * @param ply   The distance from the root.
+	 * @return The score.
+	 */
+	static int fromCache(int score, int ply) {
+		if (score > WIN - MAX_PLY) return score - ply;
+		if (score < -WIN + MAX_PLY) return score + ply;
+		return score;
+	}
+
+	/**
+	 * Sets the positions of the game so far, whose last position must be the root of each search.
+	 * Positions repeated in a line, or reached without progress for too long, are scored as draws.
+	 * @param history The history, or null to not score draws.
+	 */
+	public void setHistory(PositionHistory history) {
+		this.history = history;
+	}
+
+	/**
+	 * Forgets the killer moves and history scores, so the next game is ordered as if by a new search.
+	 */
+	public void clearMoveOrdering() {
+		for (int[] killer : killers) {
+			killer[0] = 0;
+			killer[1] = 0;
+		}
+		Arrays.fill(moveHistory, 0);
+	}
+
+	/**
+	 * Sets the listener told about each completed iteration.
+	 * @param listener The listener, or null for none.
+	 */
+	public void setListener(SearchListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets if moves are ordered, so the effect of ordering can be measured.
+	 * @param ordering If moves are ordered, true by default.
+	 */
+	public void setOrdering(boolean ordering) {
+		this.ordering = ordering;
+	}
+
+	/**
+	 * Sets if capture exchanges on the last ply are followed.
+	 * @param quiescence If the quiescence search is used, true by default.
+	 */
+	public void setQuiescence(boolean quiescence) {
+		this.quiescence = quiescence;
+	}
+
+	/**
+	 * Gets the name of the engine.
+	 * @return The name.
+	 */
+	@Override
+	public String getName() {
+		return "alpha-beta";
+	}
+
+	/**
+	 * Gets the number of positions visited by the last search.
+	 * @return The number of positions.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+}
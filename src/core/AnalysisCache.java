@@ -0,0 +1,392 @@
+package core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AnalysisCache maps position hashes to the score, depth and best move found by a search
+ *
+ * A cache can be kept in memory or in a memory-mapped file.  A file-backed cache
+ * survives restarts and can be read by several processes at once.  Each process
+ * collects its own results and merges them into the file while holding an
+ * exclusive file lock, so there is only ever one writer.  Readers never lock:
+ * every slot stores its key XORed with its data, so a torn or stale slot is
+ * simply read as a miss.
+ *
+ * The cache has a fixed number of buckets of four slots.  When a bucket is
+ * full the shallowest, oldest result is evicted.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-07
+ */
+public class AnalysisCache implements Closeable {
+
+	/** Bound type of a score which is exact */
+	public static final int EXACT = 3;
+
+	/** Bound type of a score which is a lower bound */
+	public static final int LOWER = 1;
+
+	/** Bound type of a score which is an upper bound */
+	public static final int UPPER = 2;
+
+	/** Identifies a cache file */
+	private static final long MAGIC = 0x43484B4341434845L;
+
+	/** The version of the file format */
+	private static final int VERSION = 1;
+
+	/** The size of the file header in bytes */
+	private static final int HEADER = 64;
+
+	/** The size of a bucket in bytes */
+	private static final int BUCKET = 64;
+
+	/** The number of slots in a bucket */
+	private static final int SLOTS = 4;
+
+	/** The largest number of buckets, keeping the mapping under 2GB */
+	private static final int MAX_BUCKETS = 1 << 24;
+
+	/** The number of results collected before they are merged into the file */
+	private static final int PENDING_SIZE = 1 << 16;
+
+	/** The slots, either mapped from the file or on the heap */
+	private final ByteBuffer buffer;
+
+	/** The file channel, null for an in-memory cache */
+	private final FileChannel channel;
+
+	/** The number of buckets minus one */
+	private final int bucketMask;
+
+	/** The generation stamped on new results, used to age out old ones */
+	private int generation;
+
+	/** Hashes of results waiting to be merged */
+	private final long[] pendingKeys;
+
+	/** Data of results waiting to be merged, 0 for an empty slot */
+	private final long[] pendingData;
+
+	/** The number of results waiting to be merged */
+	private int pendingCount;
+
+
+	/**
+	 * Constructor
+	 * @param buffer    The slots.
+	 * @param channel   The file channel, null for an in-memory cache.
+	 * @param buckets   The number of buckets.
+	 */
+	private AnalysisCache(ByteBuffer buffer, FileChannel channel, int buckets) {
+		this.buffer = buffer;
+		this.channel = channel;
+		this.bucketMask = buckets - 1;
+		if (channel != null) {
+			generation = buffer.getInt(16);
+			pendingKeys = new long[PENDING_SIZE];
+			pendingData = new long[PENDING_SIZE];
+		} else {
+			pendingKeys = null;
+			pendingData = null;
+		}
+	}
+
+	/**
+	 * Creates a cache which is kept in memory only.
+	 * @param buckets   The number of buckets, rounded up to a power of two.
+	 * @return The cache.
+	 */
+	public static AnalysisCache inMemory(int buckets) {
+		buckets = roundBuckets(buckets);
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER + buckets * BUCKET);
+		return new AnalysisCache(buffer, null, buckets);
+	}
+
+	/**
+	 * Opens a cache file, creating it if it does not exist.
+	 * An existing file keeps the number of buckets it was created with.
+	 * @param path      The file.
+	 * @param buckets   The number of buckets for a new file, rounded up to a power of two.
+	 * @return The cache.
+	 * @throws IOException if the file cannot be opened or is not a cache file.
+	 */
+	public static AnalysisCache open(Path path, int buckets) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			FileLock lock = channel.lock(0, HEADER, false);
+			try {
+				ByteBuffer header = ByteBuffer.allocate(HEADER);
+				if (channel.size() < HEADER) {
+					buckets = roundBuckets(buckets);
+					header.putLong(0, MAGIC);
+					header.putInt(8, VERSION);
+					header.putInt(12, buckets);
+					header.putInt(16, 0);
+					channel.write(header, 0);
+					channel.write(ByteBuffer.allocate(1), HEADER + (long) buckets * BUCKET - 1);
+				} else {
+					channel.read(header, 0);
+					if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+						throw new IOException("not an analysis cache file: " + path);
+					}
+					buckets = header.getInt(12);
+				}
+			}
+			finally {
+				lock.release();
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) buckets * BUCKET);
+			return new AnalysisCache(buffer, channel, buckets);
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Rounds a number of buckets up to a power of two within the allowed range.
+	 * @param buckets The requested number of buckets.
+	 * @return The number of buckets.
+	 */
+	private static int roundBuckets(int buckets) {
+		if (buckets <= 1) {
+			return 1;
+		}
+		return Math.min(MAX_BUCKETS, Integer.highestOneBit(buckets - 1) << 1);
+	}
+
+	/**
+	 * Looks up the result for a position.
+	 * @param hash The hash of the position.
+	 * @return The packed result, or 0 if there is none.
+	 */
+	public long probe(long hash) {
+		if (channel != null) {
+			synchronized (this) {
+				int index = pendingIndex(hash);
+				if (pendingData[index] != 0 && pendingKeys[index] == hash) {
+					return pendingData[index];
+				}
+			}
+		}
+		int base = HEADER + ((int) hash & bucketMask) * BUCKET;
+		for (int slot = 0; slot < SLOTS; slot++) {
+			int offset = base + slot * 16;
+			long data = buffer.getLong(offset + 8);
+			if (data != 0 && (buffer.getLong(offset) ^ data) == hash) {
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Records the result for a position.
+	 * A file-backed cache keeps the result in memory until the next merge.
+	 * @param hash      The hash of the position.
+	 * @param score     The score from the point of view of the side to move.
+	 * @param depth     The depth searched, 0 to 255.
+	 * @param bound     EXACT, LOWER or UPPER.
+	 * @param move      The best move, 0 if there is none.
+	 */
+	public synchronized void store(long hash, int score, int depth, int bound, int move) {
+		long data = pack(score, depth, bound, move, generation);
+		if (channel == null) {
+			write(hash, data);
+			return;
+		}
+		int index = pendingIndex(hash);
+		if (pendingData[index] == 0) {
+			pendingCount++;
+		} else if (depth(pendingData[index]) > depth) {
+			return;		//keep the deeper result until the next merge
+		}
+		pendingKeys[index] = hash;
+		pendingData[index] = data;
+		if (pendingCount >= PENDING_SIZE / 2) {
+			merge();
+		}
+	}
+
+	/**
+	 * Forgets every result of an in-memory cache.
+	 * @throws IllegalStateException if the cache is file-backed, so shared with other processes.
+	 */
+	public synchronized void clear() throws IllegalStateException {
+		if (channel != null) {
+			throw new IllegalStateException("a file-backed cache is shared and cannot be cleared");
+		}
+		for (int offset = HEADER; offset < buffer.capacity(); offset += 8) {
+			buffer.putLong(offset, 0);
+		}
+		generation = 0;
+	}
+
+	/**
+	 * Gets the index of a hash in the pending results.
+	 * @param hash The hash.
+	 * @return The index.
+	 */
+	private int pendingIndex(long hash) {
+		return (int) (hash >>> 40) & (PENDING_SIZE - 1);
+	}
+
+	/**
+	 * Merges the results collected by this process into the file.
+	 * Holds an exclusive lock on the file header so only one process writes at a time.
+	 * Does nothing for an in-memory cache.
+	 * @throws IllegalStateException if the file cannot be locked.
+	 */
+	public synchronized void merge() throws IllegalStateException {
+		if (channel == null || pendingCount == 0) {
+			return;
+		}
+		try {
+			FileLock lock = channel.lock(0, HEADER, false);
+			try {
+				generation = buffer.getInt(16);
+				for (int i = 0; i < PENDING_SIZE; i++) {
+					if (pendingData[i] != 0) {
+						write(pendingKeys[i], withGeneration(pendingData[i], generation));
+						pendingData[i] = 0;
+					}
+				}
+				pendingCount = 0;
+				generation = (generation + 1) & 63;
+				buffer.putInt(16, generation);
+			}
+			finally {
+				lock.release();
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("cannot lock analysis cache", e);
+		}
+	}
+
+	/**
+	 * Writes a result into its bucket, evicting the least valuable slot if needed.
+	 * @param hash The hash of the position.
+	 * @param data The packed result.
+	 */
+	private void write(long hash, long data) {
+		int base = HEADER + ((int) hash & bucketMask) * BUCKET;
+		int victim = base;
+		int victimValue = Integer.MAX_VALUE;
+		for (int slot = 0; slot < SLOTS; slot++) {
+			int offset = base + slot * 16;
+			long old = buffer.getLong(offset + 8);
+			if (old == 0) {
+				victim = offset;
+				victimValue = Integer.MIN_VALUE;
+				continue;
+			}
+			if ((buffer.getLong(offset) ^ old) == hash) {
+				if (depth(old) > depth(data) && age(old) == 0) {
+					return;		//already have a deeper current result
+				}
+				victim = offset;
+				break;
+			}
+			int value = depth(old) - 4 * age(old);
+			if (value < victimValue) {
+				victim = offset;
+				victimValue = value;
+			}
+		}
+		buffer.putLong(victim + 8, data);
+		buffer.putLong(victim, hash ^ data);
+	}
+
+	/**
+	 * Gets how many merges ago a result was written.
+	 * @param data The packed result.
+	 * @return The age.
+	 */
+	private int age(long data) {
+		return (generation - (int) ((data >>> 26) & 63)) & 63;
+	}
+
+	/**
+	 * Packs a result into a long.
+	 * @param score         The score.
+	 * @param depth         The depth.
+	 * @param bound         The bound type.
+	 * @param move          The best move.
+	 * @param generation    The generation.
+	 * @return The packed result.
+	 */
+	private static long pack(int score, int depth, int bound, int move, int generation) {
+		return ((long) score << 32) | ((long) (generation & 63) << 26) | ((long) (bound & 3) << 24)
+				| ((long) (depth & 255) << 16) | (move & 0xFFFF);
+	}
+
+	/**
+	 * Replaces the generation of a packed result.
+	 * @param data          The packed result.
+	 * @param generation    The generation.
+	 * @return The packed result.
+	 */
+	private static long withGeneration(long data, int generation) {
+		return (data & ~(63L << 26)) | ((long) (generation & 63) << 26);
+	}
+
+	/**
+	 * Gets the score of a packed result.
+	 * @param data The packed result.
+	 * @return The score from the point of view of the side to move.
+	 */
+	public static int score(long data) {
+		return (int) (data >> 32);
+	}
+
+	/**
+	 * Gets the depth of a packed result.
+	 * @param data The packed result.
+	 * @return The depth.
+	 */
+	public static int depth(long data) {
+		return (int) (data >>> 16) & 255;
+	}
+
+	/**
+	 * Gets the bound type of a packed result.
+	 * @param data The packed result.
+	 * @return EXACT, LOWER or UPPER.
+	 */
+	public static int bound(long data) {
+		return (int) (data >>> 24) & 3;
+	}
+
+	/**
+	 * Gets the best move of a packed result.
+	 * @param data The packed result.
+	 * @return The encoded move, 0 if there is none.
+	 */
+	public static int move(long data) {
+		return (int) data & 0xFFFF;
+	}
+
+	/**
+	 * Merges any remaining results and closes the file.
+	 * @throws IOException if the file cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			merge();
+			((MappedByteBuffer) buffer).force();
+			channel.close();
+		}
+	}
+}
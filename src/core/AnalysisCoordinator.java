@@ -0,0 +1,528 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AnalysisCoordinator shares analysis tasks among worker processes on the same
+ * machine and merges their results
+ *  contains a main method to run a distributed perft from the start of a game
+ *
+ * The coordinator starts each AnalysisWorker as a separate JVM which connects
+ * back over a localhost socket.  Tasks wait in one shared queue and a worker
+ * is sent the next task only when it returns a result, so fast workers take
+ * more of the work.  When the queue is empty an idle worker is given a copy of
+ * a task another worker is still running, and the first result wins, so one
+ * slow worker cannot hold up the end of a run.  A task whose worker dies is
+ * put back at the front of the queue and the worker is restarted.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-23
+ */
+public class AnalysisCoordinator implements Closeable {
+
+	/** The number of perft tasks to aim for per worker, so work can be balanced */
+	private static final int TASKS_PER_WORKER = 16;
+
+	/** The depth below which perft tasks are not split further */
+	private static final int MIN_SPLIT_DEPTH = 4;
+
+	/** Socket the workers connect to */
+	private final ServerSocket server;
+
+	/** The worker processes, indexed by worker number */
+	private final Process[] processes;
+
+	/** If each worker is connected */
+	private final boolean[] connected;
+
+	/** The number of times a failed worker may be restarted */
+	private final int maxRestarts;
+
+	/** The number of workers started but not yet connected */
+	private int starting;
+
+	/** The number of workers connected */
+	private int live;
+
+	/** The number of workers restarted so far */
+	private int restarts;
+
+	/** The number of tasks copied to a second worker so far */
+	private int backups;
+
+	/** If the coordinator has been closed */
+	private boolean closed;
+
+	/** The number of the current run, so late results of earlier runs are ignored */
+	private int generation;
+
+	/** The kind of task of the current run */
+	private byte kind;
+
+	/** The depth of the current run */
+	private int depth;
+
+	/** The positions of the current run */
+	private int[] xs;
+
+	/** The positions of the current run */
+	private int[] os;
+
+	/** The sides to move of the current run */
+	private boolean[] sides;
+
+	/** The results of the current run */
+	private long[] results;
+
+	/** If each task of the current run is done */
+	private boolean[] done;
+
+	/** The number of workers running each task */
+	private int[] running;
+
+	/** The number of tasks not done */
+	private int remaining;
+
+	/** Tasks waiting for a worker */
+	private final ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+
+	/**
+	 * Constructor, starts the workers.
+	 * @param workers       The number of worker processes.
+	 * @param maxRestarts   The number of times failed workers may be restarted in total.
+	 * @throws IOException if the coordinator's socket cannot be opened or a worker cannot be started.
+	 */
+	public AnalysisCoordinator(int workers, int maxRestarts) throws IOException {
+		this(workers, maxRestarts, -1);
+	}
+
+	/**
+	 * Constructor, starts the workers with the first one set to crash, for trying out recovery.
+	 * @param workers       The number of worker processes.
+	 * @param maxRestarts   The number of times failed workers may be restarted in total.
+	 * @param crashAfter    The number of tasks after which the first worker crashes, -1 for never.
+	 * @throws IOException if the coordinator's socket cannot be opened or a worker cannot be started.
+	 */
+	AnalysisCoordinator(int workers, int maxRestarts, int crashAfter) throws IOException {
+		this.maxRestarts = maxRestarts;
+		processes = new Process[workers];
+		connected = new boolean[workers];
+		server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::acceptWorkers, "coordinator");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		synchronized (this) {
+			for (int i = 0; i < workers; i++) {
+				start(i, i == 0 ? crashAfter : -1);
+			}
+		}
+	}
+
+	/**
+	 * Starts a worker process.
+	 * @param number        The worker's number.
+	 * @param crashAfter    The number of tasks after which it crashes, -1 for never.
+	 * @throws IOException if the process cannot be started.
+	 */
+	private synchronized void start(int number, int crashAfter) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			command.add("--add-modules");
+			command.add("jdk.incubator.vector");
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(AnalysisWorker.class.getName());
+		command.add(Integer.toString(server.getLocalPort()));
+		command.add(Integer.toString(number));
+		if (crashAfter >= 0) {
+			command.add("--crash-after");
+			command.add(Integer.toString(crashAfter));
+		}
+		Process process = new ProcessBuilder(command)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		processes[number] = process;
+		starting++;
+		process.onExit().thenRun(() -> workerExited(number, process));
+	}
+
+	/**
+	 * Accepts worker connections until the coordinator is closed.
+	 */
+	private void acceptWorkers() {
+		while (! server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				Thread thread = new Thread(() -> serve(socket), "coordinator");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			catch (IOException e) {
+				//closed
+			}
+		}
+	}
+
+	/**
+	 * Sends tasks to one worker and collects its results until the coordinator closes or the worker fails.
+	 * @param socket The worker's connection.
+	 */
+	private void serve(Socket socket) {
+		int number = -1;
+		Process process = null;
+		int id = -1;
+		int taskGeneration = 0;
+		try (socket) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			number = in.readInt();
+			process = workerConnected(number);
+			while (true) {
+				int x, o, taskDepth;
+				boolean xToMove;
+				byte taskKind;
+				synchronized (this) {
+					id = nextTask();
+					if (id < 0) {
+						out.writeByte(AnalysisWorker.STOP);
+						out.flush();
+						return;
+					}
+					taskGeneration = generation;
+					taskKind = kind;
+					taskDepth = depth;
+					x = xs[id];
+					o = os[id];
+					xToMove = sides[id];
+				}
+				out.writeByte(taskKind);
+				out.writeInt(id);
+				out.writeInt(x);
+				out.writeInt(o);
+				out.writeBoolean(xToMove);
+				out.writeByte(taskDepth);
+				out.flush();
+				if (in.readInt() != id) {
+					throw new IOException("result for the wrong task");
+				}
+				complete(taskGeneration, id, in.readLong());
+				id = -1;
+			}
+		}
+		catch (IOException e) {
+			if (id >= 0) {
+				failed(taskGeneration, id);
+			}
+			if (process != null) {
+				process.destroyForcibly();		//restarted once it has exited
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Records that a worker has connected.
+	 * @param number The worker's number.
+	 * @return The worker's process, the one to destroy if this connection fails.
+	 * @throws IOException if the number is not a worker's.
+	 */
+	private synchronized Process workerConnected(int number) throws IOException {
+		if (number < 0 || number >= processes.length || connected[number]) {
+			throw new IOException("unexpected worker " + number);
+		}
+		connected[number] = true;
+		starting--;
+		live++;
+		return processes[number];
+	}
+
+	/**
+	 * Records that a worker process has exited and restarts it if allowed.
+	 * @param number    The worker's number.
+	 * @param process   The process that exited.
+	 */
+	private synchronized void workerExited(int number, Process process) {
+		if (processes[number] != process) {
+			return;
+		}
+		if (connected[number]) {
+			connected[number] = false;
+			live--;
+		} else {
+			starting--;
+		}
+		if (! closed && restarts < maxRestarts) {
+			restarts++;
+			try {
+				start(number, -1);
+			}
+			catch (IOException e) {
+				System.err.println("Could not restart worker " + number + " - " + e.getMessage());
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Waits for the next task for a worker.
+	 * @return The task, -1 if the coordinator has closed.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	private synchronized int nextTask() throws InterruptedException {
+		while (! closed) {
+			Integer queued = queue.pollFirst();
+			if (queued != null) {
+				if (done[queued]) continue;
+				running[queued]++;
+				return queued;
+			}
+			if (remaining > 0) {
+				for (int i = 0; i < done.length; i++) {
+					if (! done[i] && running[i] == 1) {		//copy a task still running on one worker
+						running[i]++;
+						backups++;
+						return i;
+					}
+				}
+			}
+			wait();
+		}
+		return -1;
+	}
+
+	/**
+	 * Records the result of a task, the first result of a task wins.
+	 * @param taskGeneration    The run the task belongs to.
+	 * @param id                The task.
+	 * @param value             The result.
+	 */
+	private synchronized void complete(int taskGeneration, int id, long value) {
+		if (taskGeneration != generation) return;
+		running[id]--;
+		if (! done[id]) {
+			done[id] = true;
+			results[id] = value;
+			remaining--;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Puts a task back at the front of the queue after its worker failed.
+	 * @param taskGeneration    The run the task belongs to.
+	 * @param id                The task.
+	 */
+	private synchronized void failed(int taskGeneration, int id) {
+		if (taskGeneration != generation) return;
+		running[id]--;
+		if (! done[id] && running[id] == 0) {
+			queue.addFirst(id);
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Runs one task for each position on the workers.
+	 * @param kind      AnalysisWorker.PERFT or AnalysisWorker.SCORE.
+	 * @param xs        The masks of X checkers.
+	 * @param os        The masks of O checkers.
+	 * @param sides     If X is the side to move in each position.
+	 * @param depth     The depth of each task.
+	 * @return The result for each position.
+	 * @throws IOException if every worker has failed and none can be restarted.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public synchronized long[] run(byte kind, int[] xs, int[] os, boolean[] sides, int depth)
+			throws IOException, InterruptedException {
+		if (closed) {
+			throw new IOException("coordinator is closed");
+		}
+		generation++;
+		this.kind = kind;
+		this.depth = depth;
+		this.xs = xs;
+		this.os = os;
+		this.sides = sides;
+		results = new long[xs.length];
+		done = new boolean[xs.length];
+		running = new int[xs.length];
+		remaining = xs.length;
+		queue.clear();
+		for (int i = 0; i < xs.length; i++) {
+			queue.addLast(i);
+		}
+		notifyAll();
+		while (remaining > 0) {
+			if (live + starting == 0) {
+				throw new IOException("every worker has failed");
+			}
+			wait();
+		}
+		return results;
+	}
+
+	/**
+	 * Counts the move paths of a given length below each move of a position.
+	 * The lines are split until there are enough tasks to keep every worker busy.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param depth     The length of the paths, 1 or more.
+	 * @return The number of paths below each move, in the order Bitboards.generateMoves gives them.
+	 * @throws IOException if every worker has failed.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public long[] divide(int x, int o, boolean xToMove, int depth) throws IOException, InterruptedException {
+		int[] moves = new int[Bitboards.MAX_MOVES];
+		int rootCount = Bitboards.generateMoves(x, o, xToMove, moves);
+		long[] counts = new long[rootCount];
+
+		//the frontier of positions still to count, with the root move each came from
+		int size = rootCount;
+		int[] fx = new int[size];
+		int[] fo = new int[size];
+		boolean[] fs = new boolean[size];
+		int[] roots = new int[size];
+		for (int i = 0; i < rootCount; i++) {
+			fx[i] = xToMove ? Bitboards.moveMover(x, moves[i]) : Bitboards.moveOpponent(x, moves[i]);
+			fo[i] = xToMove ? Bitboards.moveOpponent(o, moves[i]) : Bitboards.moveMover(o, moves[i]);
+			fs[i] = ! xToMove;
+			roots[i] = i;
+		}
+		int remainingDepth = depth - 1;
+		while (size > 0 && size < processes.length * TASKS_PER_WORKER && remainingDepth > MIN_SPLIT_DEPTH) {
+			int[] nx = new int[size * Bitboards.MAX_MOVES];
+			int[] no = new int[nx.length];
+			boolean[] ns = new boolean[nx.length];
+			int[] nroots = new int[nx.length];
+			int next = 0;
+			for (int i = 0; i < size; i++) {
+				int count = Bitboards.generateMoves(fx[i], fo[i], fs[i], moves);
+				for (int m = 0; m < count; m++) {
+					nx[next] = fs[i] ? Bitboards.moveMover(fx[i], moves[m]) : Bitboards.moveOpponent(fx[i], moves[m]);
+					no[next] = fs[i] ? Bitboards.moveOpponent(fo[i], moves[m]) : Bitboards.moveMover(fo[i], moves[m]);
+					ns[next] = ! fs[i];
+					nroots[next] = roots[i];
+					next++;
+				}
+			}
+			fx = nx;
+			fo = no;
+			fs = ns;
+			roots = nroots;
+			size = next;
+			remainingDepth--;
+		}
+
+		long[] results = run(AnalysisWorker.PERFT, Arrays.copyOf(fx, size), Arrays.copyOf(fo, size),
+				Arrays.copyOf(fs, size), remainingDepth);
+		for (int i = 0; i < size; i++) {
+			counts[roots[i]] += results[i];
+		}
+		return counts;
+	}
+
+	/**
+	 * Gets the number of workers restarted so far.
+	 * @return The number of restarts.
+	 */
+	public synchronized int getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * Gets the number of tasks copied to a second worker so far.
+	 * @return The number of copies.
+	 */
+	public synchronized int getBackups() {
+		return backups;
+	}
+
+	/**
+	 * Stops the workers and closes the socket.
+	 * @throws IOException if the socket cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		Process[] stopping;
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+			stopping = processes.clone();
+		}
+		for (Process process : stopping) {
+			try {
+				if (process != null && ! process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			}
+			catch (InterruptedException e) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+		server.close();
+	}
+
+	/**
+	 * Main method to count move paths from the start of a game with worker processes.
+	 * @param args	[--workers N] [--depth D] [--crash N], where --crash makes the
+	 * 		first worker fail after N tasks to show the task being retried.
+	 */
+	public static void main(String[] args) {
+		int workers = Runtime.getRuntime().availableProcessors();
+		int depth = 12;
+		int crashAfter = -1;
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals("--workers")) {
+				workers = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--depth")) {
+				depth = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--crash")) {
+				crashAfter = Integer.parseInt(args[++i]);
+			}
+		}
+
+		int[] moves = new int[Bitboards.MAX_MOVES];
+		int count = Bitboards.generateMoves(Bitboards.START_X, Bitboards.START_O, true, moves);
+		try (AnalysisCoordinator coordinator = new AnalysisCoordinator(workers, workers, crashAfter)) {
+			long start = System.nanoTime();
+			long[] counts = coordinator.divide(Bitboards.START_X, Bitboards.START_O, true, depth);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			long total = 0;
+			for (int i = 0; i < count; i++) {
+				System.out.println(Bitboards.toNotation(moves[i]) + ": " + counts[i]);
+				total += counts[i];
+			}
+			System.out.println("perft(" + depth + ") = " + total + ", " + millis + " ms, " + workers + " workers, "
+					+ coordinator.getRestarts() + " restarts, " + coordinator.getBackups() + " backup tasks");
+		}
+		catch (IOException e) {
+			System.err.println("Analysis failed - " + e.getMessage());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * AnalysisWorker runs analysis tasks sent by an AnalysisCoordinator
+ *  contains the main method of a worker process
+ *
+ * A worker connects to the coordinator, sends its number and then answers one
+ * task at a time until it is told to stop or the connection closes.
+ *   task    [kind:1][id:4][X mask:4][O mask:4][X to move:1][depth:1]
+ *   result  [id:4][value:8]
+ * A task of kind STOP ends the worker.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-23
+ */
+public class AnalysisWorker {
+
+	/** Task kind telling the worker to stop */
+	public static final byte STOP = 0;
+
+	/** Task kind counting the move paths of the given depth */
+	public static final byte PERFT = 1;
+
+	/** Task kind scoring the position with a search of the given depth */
+	public static final byte SCORE = 2;
+
+	/** Counts move paths */
+	private final Perft perft = new Perft();
+
+	/** Scores positions */
+	private final AlphaBetaSearch search = new AlphaBetaSearch(BatchEvaluator.create(EvaluationWeights.defaults()),
+			AnalysisCache.inMemory(1 << 16));
+
+
+	/**
+	 * Runs one task.
+	 * @param kind      PERFT or SCORE.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param depth     The depth.
+	 * @return The number of paths, or the score for the side to move.
+	 * @throws IllegalArgumentException if the kind is unknown.
+	 */
+	long run(int kind, int x, int o, boolean xToMove, int depth) throws IllegalArgumentException {
+		if (kind == PERFT) {
+			return perft.count(x, o, xToMove, depth);
+		}
+		if (kind == SCORE) {
+			return search.search(x, o, xToMove, depth).getScore();
+		}
+		throw new IllegalArgumentException("unknown task kind: " + kind);
+	}
+
+	/**
+	 * Main method of a worker process.
+	 * @param args	The coordinator's port, the worker's number and optionally
+	 * 		--crash-after N to exit abruptly after N tasks, for trying out recovery.
+	 */
+	public static void main(String[] args) {
+		int port = Integer.parseInt(args[0]);
+		int number = Integer.parseInt(args[1]);
+		int crashAfter = args.length > 3 && args[2].equals("--crash-after") ? Integer.parseInt(args[3]) : -1;
+
+		AnalysisWorker worker = new AnalysisWorker();
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeInt(number);
+			out.flush();
+			int done = 0;
+			while (true) {
+				byte kind = in.readByte();
+				if (kind == STOP) {
+					return;
+				}
+				int id = in.readInt();
+				int x = in.readInt();
+				int o = in.readInt();
+				boolean xToMove = in.readBoolean();
+				int depth = in.readByte();
+				if (done++ == crashAfter) {
+					Runtime.getRuntime().halt(1);
+				}
+				out.writeInt(id);
+				out.writeLong(worker.run(kind, x, o, xToMove, depth));
+				out.flush();
+			}
+		}
+		catch (EOFException e) {
+			//coordinator has gone
+		}
+		catch (IOException | RuntimeException e) {
+			System.err.println("Worker " + number + " failed - " + e);
+			System.exit(1);
+		}
+	}
+}
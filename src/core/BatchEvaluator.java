@@ -0,0 +1,133 @@
+package core;
+
+/**
+ * BatchEvaluator scores packed positions by material, advancement and mobility
+ *
+ * This is the scalar implementation.  VectorBatchEvaluator produces identical
+ * scores using the Vector API and is used by create() when it is available.
+ * It is kept in src-vector, outside the default source set, so the game
+ * builds with a plain javac; see README.md for the vector build.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-03
+ */
+public class BatchEvaluator {
+
+	/** The weights of each evaluation term */
+	protected final EvaluationWeights weights;
+
+
+	/**
+	 * Constructor
+	 * @param weights The weights of each evaluation term.
+	 */
+	public BatchEvaluator(EvaluationWeights weights) {
+		this.weights = weights;
+	}
+
+	/**
+	 * Creates the fastest evaluator available on this JVM.
+	 * The Vector API is used when VectorBatchEvaluator has been compiled, the
+	 * jdk.incubator.vector module has been added and the system property
+	 * checkers.vector is not false.
+	 * @param weights The weights of each evaluation term.
+	 * @return The evaluator.
+	 */
+	public static BatchEvaluator create(EvaluationWeights weights) {
+		boolean vectorAvailable = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+		if (vectorAvailable && ! "false".equals(System.getProperty("checkers.vector"))) {
+			try {
+				return (BatchEvaluator) Class.forName("core.VectorBatchEvaluator")
+						.getConstructor(EvaluationWeights.class).newInstance(weights);
+			}
+			catch (ReflectiveOperationException | LinkageError e) {
+				//fall through to the scalar evaluator
+			}
+		}
+		return new BatchEvaluator(weights);
+	}
+
+	/**
+	 * Gets the weights used by this evaluator.
+	 * @return The weights.
+	 */
+	public EvaluationWeights getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Scores every position in a block.
+	 * @param block The block of positions.
+	 */
+	public void evaluate(PositionBlock block) {
+		evaluate(block, 0);
+	}
+
+	/**
+	 * Scores the positions of a block from an index to the end of the block.
+	 * @param block The block of positions.
+	 * @param start The index of the first position to score.
+	 */
+	protected void evaluate(PositionBlock block, int start) {
+		int[] x = block.x;
+		int[] o = block.o;
+		int[] scores = block.scores;
+		for (int i = start; i < block.size; i++) {
+			scores[i] = evaluate(x[i], o[i]);
+		}
+	}
+
+	/**
+	 * Scores a single position.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 * @return The score from X's point of view.
+	 */
+	public int evaluate(int x, int o) {
+		return weights.material * material(x, o) + weights.advancement * advancement(x, o)
+				+ weights.mobility * mobility(x, o);
+	}
+
+	/**
+	 * Counts the material term of a position.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 * @return X's checkers less O's checkers.
+	 */
+	static int material(int x, int o) {
+		return Integer.bitCount(x) - Integer.bitCount(o);
+	}
+
+	/**
+	 * Counts the advancement term of a position.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 * @return The rows X's checkers have advanced less the rows O's checkers have advanced.
+	 */
+	static int advancement(int x, int o) {
+		int advancement = 0;
+		for (int row = 0; row < 8; row++) {
+			advancement += row * Integer.bitCount(x & Bitboards.ROWS[row])
+					- (7 - row) * Integer.bitCount(o & Bitboards.ROWS[row]);
+		}
+		return advancement;
+	}
+
+	/**
+	 * Counts the mobility term of a position.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 * @return X's moves less O's moves.
+	 */
+	static int mobility(int x, int o) {
+		return Bitboards.xMobility(x, o) - Bitboards.oMobility(x, o);
+	}
+
+	/**
+	 * Gets the name of the implementation.
+	 * @return The name.
+	 */
+	public String getName() {
+		return "scalar";
+	}
+}
@@ -0,0 +1,371 @@
+package core;
+
+import core.CheckerBoard.Checker;
+
+/**
+ * Bitboards contains a packed representation of a checkers position and the
+ * move generation that works on it.
+ *
+ * The 32 playable squares are numbered 0 to 31, four to a row, starting with
+ * square 1a and ending with square 8h.  A position is a mask of X checkers, a
+ * mask of O checkers and the side to move.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-03
+ */
+public final class Bitboards {
+
+	/** The number of playable squares. */
+	public static final int SQUARES = 32;
+
+	/** Mask of the squares on rows 1, 3, 5 and 7. */
+	public static final int ODD_ROWS = 0x0F0F0F0F;
+
+	/** Mask of the squares on rows 2, 4, 6 and 8. */
+	public static final int EVEN_ROWS = 0xF0F0F0F0;
+
+	/** Mask of the first playable square in each row. */
+	public static final int LEFT_EDGE = 0x11111111;
+
+	/** Mask of the last playable square in each row. */
+	public static final int RIGHT_EDGE = 0x88888888;
+
+	/** Mask of each row, index 0 is row 1. */
+	public static final int[] ROWS = {
+			0x0000000F, 0x000000F0, 0x00000F00, 0x0000F000,
+			0x000F0000, 0x00F00000, 0x0F000000, 0xF0000000 };
+
+	/** Mask of the X checkers at the start of a game. */
+	public static final int START_X = 0x00000FFF;
+
+	/** Mask of the O checkers at the start of a game. */
+	public static final int START_O = 0xFFF00000;
+
+	/** The maximum number of moves a side can have in one position. */
+	public static final int MAX_MOVES = 48;
+
+	/** Flag bit set on moves that capture a piece. */
+	public static final int JUMP = 1 << 15;
+
+
+	/**
+	 * Private constructor, Bitboards only contains static members.
+	 */
+	private Bitboards() {
+	}
+
+	/**
+	 * Gets the square index of a board coordinate.
+	 * @param row       The row, 1 to 8.
+	 * @param column    The column, 1 to 8.
+	 * @return The square index, or -1 if the coordinate is not a playable square.
+	 */
+	public static int square(int row, int column) {
+		if (row < 1 || row > 8 || column < 1 || column > 8 || ((row + column) & 1) != 0) {
+			return -1;
+		}
+		return (row - 1) * 4 + (column - 1) / 2;
+	}
+
+	/**
+	 * Gets the row of a square index.
+	 * @param square    The square index.
+	 * @return The row, 1 to 8.
+	 */
+	public static int row(int square) {
+		return (square >> 2) + 1;
+	}
+
+	/**
+	 * Gets the column of a square index.
+	 * @param square    The square index.
+	 * @return The column, 1 to 8.
+	 */
+	public static int column(int square) {
+		int row = square >> 2;
+		return ((square & 3) << 1) + (row & 1) + 1;
+	}
+
+	/**
+	 * Gets the mask of X checkers on a CheckerBoard.
+	 * @param board The CheckerBoard.
+	 * @return The mask of X checkers.
+	 */
+	public static int xMask(CheckerBoard board) {
+		int mask = 0;
+		for (Checker checker : board.getXPieces()) {
+			mask |= mask(checker);
+		}
+		return mask;
+	}
+
+	/**
+	 * Gets the mask of O checkers on a CheckerBoard.
+	 * @param board The CheckerBoard.
+	 * @return The mask of O checkers.
+	 */
+	public static int oMask(CheckerBoard board) {
+		int mask = 0;
+		for (Checker checker : board.getOPieces()) {
+			mask |= mask(checker);
+		}
+		return mask;
+	}
+
+	/**
+	 * Gets the mask of a single checker.
+	 * @param checker The checker.
+	 * @return The mask of the checker's square, 0 if it has been captured.
+	 */
+	private static int mask(Checker checker) {
+		if (checker.isCaptured()) {
+			return 0;
+		}
+		int[] position = checker.getPosition();
+		return 1 << square(position[0], position[1]);
+	}
+
+	/**
+	 * Checks if X is the side to move on a CheckerBoard.
+	 * @param board The CheckerBoard.
+	 * @return If X is the current player.
+	 */
+	public static boolean xToMove(CheckerBoard board) {
+		return board.getCurrentPlayer().isX();
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the left for X.
+	 * @param bits The mask.
+	 * @return The shifted mask.
+	 */
+	public static int xLeft(int bits) {
+		return ((bits & ODD_ROWS & ~LEFT_EDGE) << 3) | ((bits & EVEN_ROWS) << 4);
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the right for X.
+	 * @param bits The mask.
+	 * @return The shifted mask.
+	 */
+	public static int xRight(int bits) {
+		return ((bits & ODD_ROWS) << 4) | ((bits & EVEN_ROWS & ~RIGHT_EDGE) << 5);
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the left for O.
+	 * @param bits The mask.
+	 * @return The shifted mask.
+	 */
+	public static int oLeft(int bits) {
+		return ((bits & ODD_ROWS & ~LEFT_EDGE) >>> 5) | ((bits & EVEN_ROWS) >>> 4);
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the right for O.
+	 * @param bits The mask.
+	 * @return The shifted mask.
+	 */
+	public static int oRight(int bits) {
+		return ((bits & ODD_ROWS) >>> 4) | ((bits & EVEN_ROWS & ~RIGHT_EDGE) >>> 3);
+	}
+
+	/**
+	 * Counts the moves and jumps available to X.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 * @return The number of legal moves for X.
+	 */
+	public static int xMobility(int x, int o) {
+		int empty = ~(x | o);
+		return Integer.bitCount(xLeft(x) & empty) + Integer.bitCount(xRight(x) & empty)
+				+ Integer.bitCount(xLeft(xLeft(x) & o) & empty) + Integer.bitCount(xRight(xRight(x) & o) & empty);
+	}
+
+	/**
+	 * Counts the moves and jumps available to O.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 * @return The number of legal moves for O.
+	 */
+	public static int oMobility(int x, int o) {
+		int empty = ~(x | o);
+		return Integer.bitCount(oLeft(o) & empty) + Integer.bitCount(oRight(o) & empty)
+				+ Integer.bitCount(oLeft(oLeft(o) & x) & empty) + Integer.bitCount(oRight(oRight(o) & x) & empty);
+	}
+
+	/**
+	 * Generates every legal move for the side to move, jumps first.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param moves     The array to fill, at least MAX_MOVES long.
+	 * @return The number of moves generated.
+	 */
+	public static int generateMoves(int x, int o, boolean xToMove, int[] moves) {
+		int empty = ~(x | o);
+		int count = 0;
+		if (xToMove) {
+			count = addJumps(xLeft(xLeft(x) & o) & empty, -7, 3, 4, moves, count);
+			count = addJumps(xRight(xRight(x) & o) & empty, -9, 4, 5, moves, count);
+			count = addMoves(xLeft(x) & empty, 3, 4, moves, count);
+			count = addMoves(xRight(x) & empty, 4, 5, moves, count);
+		} else {
+			count = addJumps(oLeft(oLeft(o) & x) & empty, 9, -5, -4, moves, count);
+			count = addJumps(oRight(oRight(o) & x) & empty, 7, -4, -3, moves, count);
+			count = addMoves(oLeft(o) & empty, -5, -4, moves, count);
+			count = addMoves(oRight(o) & empty, -4, -3, moves, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the jumps landing on each square of a mask.
+	 * @param targets   The landing squares.
+	 * @param back      The distance from the landing square back to the starting square.
+	 * @param oddStep   The step taken from an odd row.
+	 * @param evenStep  The step taken from an even row.
+	 * @param moves     The array of moves.
+	 * @param count     The number of moves already in the array.
+	 * @return The new number of moves.
+	 */
+	private static int addJumps(int targets, int back, int oddStep, int evenStep, int[] moves, int count) {
+		while (targets != 0) {
+			int to = Integer.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			int from = to + back;
+			int over = from + ((((from >> 2) & 1) == 0) ? oddStep : evenStep);
+			moves[count++] = encode(from, to, over);
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the single moves landing on each square of a mask.
+	 * @param targets   The landing squares.
+	 * @param oddStep   The step taken from an odd row.
+	 * @param evenStep  The step taken from an even row.
+	 * @param moves     The array of moves.
+	 * @param count     The number of moves already in the array.
+	 * @return The new number of moves.
+	 */
+	private static int addMoves(int targets, int oddStep, int evenStep, int[] moves, int count) {
+		while (targets != 0) {
+			int to = Integer.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			//a move from an odd row always lands on an even row
+			boolean fromOdd = ((to >> 2) & 1) == 1;
+			int from = to - (fromOdd ? oddStep : evenStep);
+			moves[count++] = encode(from, to, -1);
+		}
+		return count;
+	}
+
+	/**
+	 * Encodes a move as an int.
+	 * @param from  The starting square.
+	 * @param to    The landing square.
+	 * @param over  The square being jumped, -1 if the move is not a jump.
+	 * @return The encoded move.
+	 */
+	public static int encode(int from, int to, int over) {
+		int move = from | (to << 5);
+		if (over >= 0) {
+			move |= (over << 10) | JUMP;
+		}
+		return move;
+	}
+
+	/**
+	 * Gets the starting square of a move.
+	 * @param move The encoded move.
+	 * @return The starting square.
+	 */
+	public static int from(int move) {
+		return move & 31;
+	}
+
+	/**
+	 * Gets the landing square of a move.
+	 * @param move The encoded move.
+	 * @return The landing square.
+	 */
+	public static int to(int move) {
+		return (move >>> 5) & 31;
+	}
+
+	/**
+	 * Gets the square jumped by a move.
+	 * @param move The encoded move.
+	 * @return The jumped square.
+	 */
+	public static int over(int move) {
+		return (move >>> 10) & 31;
+	}
+
+	/**
+	 * Checks if a move captures a piece.
+	 * @param move The encoded move.
+	 * @return If the move is a jump.
+	 */
+	public static boolean isJump(int move) {
+		return (move & JUMP) != 0;
+	}
+
+	/**
+	 * Plays a move on the mask of the side to move.
+	 * @param mover The mask of the side to move.
+	 * @param move  The encoded move.
+	 * @return The new mask of the side to move.
+	 */
+	public static int moveMover(int mover, int move) {
+		return mover ^ (1 << from(move)) ^ (1 << to(move));
+	}
+
+	/**
+	 * Plays a move on the mask of the side not moving.
+	 * @param opponent  The mask of the side not moving.
+	 * @param move      The encoded move.
+	 * @return The new mask of the side not moving.
+	 */
+	public static int moveOpponent(int opponent, int move) {
+		return isJump(move) ? opponent & ~(1 << over(move)) : opponent;
+	}
+
+	/**
+	 * Converts a move to the coordinates used by CheckerBoard.
+	 * @param move The encoded move.
+	 * @return The starting row, starting column, finishing row and finishing column.
+	 */
+	public static int[] toCoordinates(int move) {
+		return new int[] {row(from(move)), column(from(move)), row(to(move)), column(to(move))};
+	}
+
+	/**
+	 * Converts CheckerBoard coordinates to a move, without checking that it is legal.
+	 * @param coordinates The starting row, starting column, finishing row and finishing column.
+	 * @return The encoded move, or -1 if a coordinate is not a playable square.
+	 */
+	public static int fromCoordinates(int[] coordinates) {
+		int from = square(coordinates[0], coordinates[1]);
+		int to = square(coordinates[2], coordinates[3]);
+		if (from < 0 || to < 0) {
+			return -1;
+		}
+		int over = -1;
+		if (Math.abs(coordinates[2] - coordinates[0]) == 2) {
+			over = square((coordinates[0] + coordinates[2]) / 2, (coordinates[1] + coordinates[3]) / 2);
+		}
+		return encode(from, to, over);
+	}
+
+	/**
+	 * Writes a move in the notation used by the text console.
+	 * @param move The encoded move.
+	 * @return The move, e.g. 3a-4b.
+	 */
+	public static String toNotation(int move) {
+		return "" + row(from(move)) + (char) ('a' + column(from(move)) - 1) + "-"
+				+ row(to(move)) + (char) ('a' + column(to(move)) - 1);
+	}
+}
@@ -0,0 +1,41 @@
+package core;
+
+/**
+ * BoardObserver is told about every change made to a CheckerBoard
+ *
+ * Observers are called on the thread changing the board and must return quickly.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-21
+ */
+public interface BoardObserver {
+
+	/**
+	 * Called after a piece has been moved.
+	 * @param fromRow       The starting row.
+	 * @param fromColumn    The starting column.
+	 * @param toRow         The finishing row.
+	 * @param toColumn      The finishing column.
+	 * @param captured      If the move jumped and captured a piece.
+	 */
+	void pieceMoved(int fromRow, int fromColumn, int toRow, int toColumn, boolean captured);
+
+	/**
+	 * Called after the turn has switched.
+	 * @param xToMove If X is now the current player.
+	 */
+	default void turnSwitched(boolean xToMove) {
+	}
+
+	/**
+	 * Called after the board has been reset to the starting position.
+	 */
+	default void boardReset() {
+	}
+
+	/**
+	 * Called after the board has been set to an arbitrary position.
+	 */
+	default void positionSet() {
+	}
+}
@@ -0,0 +1,159 @@
+package core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * BoardState publishes the packed position of a CheckerBoard so other threads
+ * can read it while the game thread changes the board
+ *
+ * It is a sequence lock: the game thread makes the version odd, writes the
+ * masks and makes the version even again, without ever waiting.  A reader
+ * reads the version, the masks and the version again, and tries again if a
+ * write was in progress or happened in between.  A read never blocks the
+ * writer and never returns half of a move.
+ *
+ * Squares are numbered as in Variant, so the masks fit every variant.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-27
+ */
+public final class BoardState {
+
+	/** Access to version with memory ordering */
+	private static final VarHandle VERSION;
+
+	/** Access to x with memory ordering */
+	private static final VarHandle X;
+
+	/** Access to o with memory ordering */
+	private static final VarHandle O;
+
+	/** Access to xToMove with memory ordering */
+	private static final VarHandle X_TO_MOVE;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			VERSION = lookup.findVarHandle(BoardState.class, "version", long.class);
+			X = lookup.findVarHandle(BoardState.class, "x", long.class);
+			O = lookup.findVarHandle(BoardState.class, "o", long.class);
+			X_TO_MOVE = lookup.findVarHandle(BoardState.class, "xToMove", boolean.class);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/** Twice the number of writes finished, odd while a write is in progress */
+	private long version;
+
+	/** The mask of X checkers */
+	private long x;
+
+	/** The mask of O checkers */
+	private long o;
+
+	/** If X is the side to move */
+	private boolean xToMove;
+
+
+	/**
+	 * Constructor
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 */
+	BoardState(long x, long o, boolean xToMove) {
+		this.x = x;
+		this.o = o;
+		this.xToMove = xToMove;
+	}
+
+	/**
+	 * Publishes a move, called only by the game thread.
+	 * @param from  The starting square.
+	 * @param to    The landing square.
+	 * @param over  The square jumped, -1 if the move is not a jump.
+	 */
+	void move(int from, int to, int over) {
+		long moved = (1L << from) | (1L << to);
+		long captured = over >= 0 ? 1L << over : 0;
+		long newX = x;
+		long newO = o;
+		if ((newX & (1L << from)) != 0) {
+			newX ^= moved;
+			newO &= ~captured;
+		} else {
+			newO ^= moved;
+			newX &= ~captured;
+		}
+		write(newX, newO, xToMove);
+	}
+
+	/**
+	 * Publishes a change of the side to move, called only by the game thread.
+	 * @param xToMove If X is now the side to move.
+	 */
+	void switchTurn(boolean xToMove) {
+		write(x, o, xToMove);
+	}
+
+	/**
+	 * Publishes a whole position, called only by the game thread.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 */
+	void write(long x, long o, boolean xToMove) {
+		long start = version;
+		VERSION.setOpaque(this, start + 1);
+		VarHandle.storeStoreFence();		//readers see the odd version before any new mask
+		X.setOpaque(this, x);
+		O.setOpaque(this, o);
+		X_TO_MOVE.setOpaque(this, xToMove);
+		VERSION.setRelease(this, start + 2);
+	}
+
+	/**
+	 * Reads a consistent snapshot of the position without locking.
+	 * @param out The array filled with the X mask, the O mask and 1 if X is to move or 0, at least 3 long.
+	 * @return The version of the snapshot, which is even and grows with every write.
+	 */
+	public long read(long[] out) {
+		while (true) {
+			long before = (long) VERSION.getAcquire(this);
+			if ((before & 1) == 0) {
+				long readX = (long) X.getOpaque(this);
+				long readO = (long) O.getOpaque(this);
+				boolean readSide = (boolean) X_TO_MOVE.getOpaque(this);
+				VarHandle.loadLoadFence();		//the masks are read before the version is checked again
+				if ((long) VERSION.getOpaque(this) == before) {
+					out[0] = readX;
+					out[1] = readO;
+					out[2] = readSide ? 1 : 0;
+					return before;
+				}
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Reads a consistent snapshot of the position without locking.
+	 * @return The position.
+	 */
+	public PositionCodec.Position read() {
+		long[] out = new long[3];
+		read(out);
+		return new PositionCodec.Position(out[0], out[1], out[2] != 0);
+	}
+
+	/**
+	 * Gets the current version, to check cheaply if the position has changed since a read.
+	 * @return The version, odd while a write is in progress.
+	 */
+	public long getVersion() {
+		return (long) VERSION.getAcquire(this);
+	}
+}
@@ -0,0 +1,160 @@
+package core;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BoardStateStress checks that readers of a BoardState only ever see whole positions
+ *  contains a main method
+ *
+ * The game thread plays random games as fast as it can.  Before each change it
+ * records the position the next version must hold, and reader threads check
+ * every snapshot they read against the record of its version.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-27
+ */
+public class BoardStateStress {
+
+	/** The number of versions recorded, a power of two */
+	private static final int RECORDS = 1 << 20;
+
+	/** The X mask expected at each version, indexed by version / 2 */
+	private final long[] expectedX = new long[RECORDS];
+
+	/** The O mask expected at each version */
+	private final long[] expectedO = new long[RECORDS];
+
+	/** The side to move expected at each version */
+	private final boolean[] expectedSide = new boolean[RECORDS];
+
+	/** The board played on */
+	private final CheckerBoard board = new CheckerBoard();
+
+	/** Set to stop every thread */
+	private final AtomicBoolean stop = new AtomicBoolean();
+
+	/** The number of snapshots checked */
+	private final LongAdder reads = new LongAdder();
+
+	/** The number of snapshots which did not match their version */
+	private final LongAdder torn = new LongAdder();
+
+
+	/**
+	 * Main method to run the check.
+	 * @param args	[--readers N] [--seconds S]
+	 * @throws InterruptedException if interrupted while waiting for the readers.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int readers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		int seconds = 5;
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals("--readers")) {
+				readers = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--seconds")) {
+				seconds = Integer.parseInt(args[++i]);
+			}
+		}
+		BoardStateStress stress = new BoardStateStress();
+		long writes = stress.run(readers, seconds * 1000L);
+		System.out.println(readers + " readers, " + writes + " writes, " + stress.reads.sum() + " snapshots checked, "
+				+ stress.torn.sum() + " inconsistent");
+		if (stress.torn.sum() > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Plays games on this thread while the readers check snapshots.
+	 * @param readers   The number of reader threads.
+	 * @param millis    How long to run.
+	 * @return The number of writes made.
+	 * @throws InterruptedException if interrupted while waiting for the readers.
+	 */
+	private long run(int readers, long millis) throws InterruptedException {
+		record(board.getState().getVersion(), Bitboards.START_X, Bitboards.START_O, true);
+		Thread[] threads = new Thread[readers];
+		for (int i = 0; i < readers; i++) {
+			threads[i] = new Thread(this::check, "reader-" + i);
+			threads[i].start();
+		}
+		Random random = new Random(1);
+		int[] moves = new int[Bitboards.MAX_MOVES];
+		int x = Bitboards.START_X;
+		int o = Bitboards.START_O;
+		boolean xToMove = true;
+		long writes = 0;
+		long end = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < end) {
+			long next = board.getState().getVersion() + 2;
+			int count = Bitboards.generateMoves(x, o, xToMove, moves);
+			if (count == 0) {
+				x = Bitboards.START_X;
+				o = Bitboards.START_O;
+				xToMove = true;
+				record(next, x, o, xToMove);
+				board.reset();
+				writes++;
+				continue;
+			}
+			int move = moves[random.nextInt(count)];
+			if (xToMove) {
+				x = Bitboards.moveMover(x, move);
+				o = Bitboards.moveOpponent(o, move);
+			} else {
+				o = Bitboards.moveMover(o, move);
+				x = Bitboards.moveOpponent(x, move);
+			}
+			record(next, x, o, xToMove);
+			board.movePiece(Bitboards.toCoordinates(move));
+			xToMove = ! xToMove;
+			record(next + 2, x, o, xToMove);
+			board.switchTurn();
+			writes += 2;
+		}
+		stop.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return writes;
+	}
+
+	/**
+	 * Records the position a version must hold, before the version is published.
+	 * @param version   The version.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 */
+	private void record(long version, int x, int o, boolean xToMove) {
+		int index = (int) (version >>> 1) & (RECORDS - 1);
+		expectedX[index] = x & 0xFFFFFFFFL;
+		expectedO[index] = o & 0xFFFFFFFFL;
+		expectedSide[index] = xToMove;
+	}
+
+	/**
+	 * Reads snapshots until stopped, checking each one against its record.
+	 */
+	private void check() {
+		BoardState state = board.getState();
+		long[] snapshot = new long[3];
+		long checked = 0;
+		while (! stop.get()) {
+			long version = state.read(snapshot);
+			int index = (int) (version >>> 1) & (RECORDS - 1);
+			boolean matches = expectedX[index] == snapshot[0] && expectedO[index] == snapshot[1]
+					&& expectedSide[index] == (snapshot[2] != 0);
+			if (state.getVersion() - version >= 2L * RECORDS) {
+				continue;		//the record was overwritten while checking
+			}
+			if (! matches) {
+				torn.increment();
+			}
+			checked++;
+		}
+		reads.add(checked);
+	}
+}
@@ -1,5 +1,7 @@
 package core;
 
+import java.util.Arrays;
+
 /**
  * Checkerboard contains a representation of a checkerboard and pieces 
  * 
@@ -21,10 +23,10 @@ public class CheckerBoard {
     final Square E = new Square(" _ |");
     
     /** The number of X Checkers remaining on the board.*/
-    public int xCount = 12;
+    public int xCount;
     
     /** The number of O Checkers remaining on the board.*/
-    public int oCount = 12;
+    public int oCount;
     
     /** Contains the X Checkers. */
     private Checker[] xPieces;
@@ -38,24 +40,60 @@ public class CheckerBoard {
     /** The piece who is currently not playing */
     private Square opponent;
     
+    /** The variant being played, which sets the size of the board */
+    private final Variant variant;
+    
+    /** The labels and squares of each row, kept so reset() can rebuild the board in place */
+    private final Square[] labels;
+    
+    /** Observers told about each change to the board */
+    private volatile BoardObserver[] observers = new BoardObserver[0];
+    
+    /** The packed position published for other threads */
+    private final BoardState state;
+    
 
     /**
-     * Constructs a complete board with pieces for a new game.
+     * Constructs a complete 8x8 board with pieces for a new game.
      */
     public CheckerBoard(){
+    	this(Variant.ENGLISH);
+    }
+    
+    /**
+     * Constructs a complete board of a variant with pieces for a new game.
+     * @param variant The variant, which sets the size of the board and the number of pieces.
+     */
+    public CheckerBoard(Variant variant){
+    	this.variant = variant;
+    	int size = variant.getSize();
+    	int pieceRows = variant.getPieceRows();
+    	labels = new Square[size + 1];
     	//build rows
-        Square[] row8 = {new Square("8 |"), E, new Checker(8,2,O), E, new Checker(8,4,O), E, new Checker(8,6,O), E, new Checker(8,8,O)};
-        Square[] row7 = {new Square("7 |"), new Checker(7,1,O), E, new Checker(7,3,O), E, new Checker(7,5,O), E, new Checker(7,7,O), E};
-        Square[] row6 = {new Square("6 |"), E, new Checker(6,2,O), E, new Checker(6,4,O), E, new Checker(6,6,O), E, new Checker(6,8,O)};
-        Square[] row5 = {new Square("5 |"), E, E, E, E, E, E, E, E};
-        Square[] row4 = {new Square("4 |"), E, E, E, E, E, E, E, E};
-        Square[] row3 = {new Square("3 |"), new Checker(3,1,X), E, new Checker(3,3,X), E, new Checker(3,5,X), E, new Checker(3,7,X), E};
-        Square[] row2 = {new Square("2 |"), E, new Checker(2,2,X), E, new Checker(2,4,X), E, new Checker(2,6,X), E, new Checker(2,8,X)};
-        Square[] row1 = {new Square("1 |"), new Checker(1,1,X), E, new Checker(1,3,X), E, new Checker(1,5,X), E, new Checker(1,7,X), E};
-        Square[] row0 = {new Square("  "), new Square("  a "), new Square("  b "), new Square("  c "),
-                new Square("  d "), new Square("  e "), new Square("  f "), new Square("  g "), new Square("  h ")};
-        //build columns
-        board = new Square[][] {row0, row1, row2, row3, row4, row5, row6, row7, row8};
+    	board = new Square[size + 1][];
+    	for (int i = 1; i <= size; i++) {
+    		Square[] row = new Square[size + 1];
+    		row[0] = new Square(i < 10 ? i + " |" : i + "|");
+    		for (int j = 1; j <= size; j++) {
+    			if ((i + j) % 2 != 0) {
+    				row[j] = E;
+    			} else if (i <= pieceRows) {
+    				row[j] = new Checker(i, j, X);
+    			} else if (i > size - pieceRows) {
+    				row[j] = new Checker(i, j, O);
+    			} else {
+    				row[j] = E;
+    			}
+    		}
+    		board[i] = row;
+    		labels[i] = row[0];
+    	}
+    	Square[] row0 = new Square[size + 1];
+    	row0[0] = new Square("  ");
+    	for (int j = 1; j <= size; j++) {
+    		row0[j] = new Square("  " + (char) ('a' + j - 1) + " ");
+    	}
+    	board[0] = row0;
         
         Square playerX = new Square(X);
         Square playerO = new Square(O);
@@ -63,8 +101,8 @@ public class CheckerBoard {
         opponent = playerO;
         xCount = 0;
         oCount = 0;
-        xPieces = new Checker[12];
-        oPieces = new Checker[12];
+        xPieces = new Checker[variant.getPieceCount()];
+        oPieces = new Checker[variant.getPieceCount()];
         
         //count and add checkers to list
         for (Square[] row : board) {
@@ -78,9 +116,144 @@ public class CheckerBoard {
         		}
         	}  	
         }   
+        state = new BoardState(variant.startX, variant.startO, true);
     }
 
 
+    /**
+     * Restores the starting position in place, reusing every Square and Checker.
+     */
+    public void reset() {
+    	for (int i = 1; i < board.length; i++) {
+    		Square[] row = board[i];
+    		row[0] = labels[i];
+    		for (int j = 1; j < row.length; j++) {
+    			row[j] = E;
+    		}
+    	}
+    	for (Checker checker : xPieces) {
+    		checker.reset();
+    		board[checker.homeRow][checker.homeColumn] = checker;
+    	}
+    	for (Checker checker : oPieces) {
+    		checker.reset();
+    		board[checker.homeRow][checker.homeColumn] = checker;
+    	}
+    	xCount = xPieces.length;
+    	oCount = oPieces.length;
+    	if (currentPlayer.isO()) {
+    		Square temp = currentPlayer;
+    		currentPlayer = opponent;
+    		opponent = temp;
+    	}
+    	state.write(variant.startX, variant.startO, true);
+    	for (BoardObserver observer : observers) {
+    		observer.boardReset();
+    	}
+    }
+    
+    /**
+     * Sets up an arbitrary position in place, reusing every Square and Checker.
+     * Checkers not needed for the position are left captured.
+     * @param x         The mask of X checkers, squares numbered as in Variant.
+     * @param o         The mask of O checkers.
+     * @param xToMove   If X is the side to move.
+     * @throws IllegalArgumentException if the position does not fit the board.
+     */
+    public void setPosition(long x, long o, boolean xToMove) throws IllegalArgumentException {
+    	long outside = variant.getSquares() == 64 ? 0 : -1L << variant.getSquares();
+    	if ((x & o) != 0 || ((x | o) & outside) != 0) {
+    		throw new IllegalArgumentException("checkers overlap or are off the board");
+    	}
+    	if (Long.bitCount(x) > xPieces.length || Long.bitCount(o) > oPieces.length) {
+    		throw new IllegalArgumentException("too many checkers");
+    	}
+    	for (int i = 1; i < board.length; i++) {
+    		Square[] row = board[i];
+    		for (int j = 1; j < row.length; j++) {
+    			row[j] = E;
+    		}
+    	}
+    	xCount = place(xPieces, x);
+    	oCount = place(oPieces, o);
+    	if (currentPlayer.isX() != xToMove) {
+    		Square temp = currentPlayer;
+    		currentPlayer = opponent;
+    		opponent = temp;
+    	}
+    	state.write(x, o, xToMove);
+    	for (BoardObserver observer : observers) {
+    		observer.positionSet();
+    	}
+    }
+    
+    /**
+     * Places one side's checkers on the squares of a mask and captures the rest.
+     * @param pieces    The side's checkers.
+     * @param mask      The squares.
+     * @return The number of checkers placed.
+     */
+    private int place(Checker[] pieces, long mask) {
+    	int count = 0;
+    	for (Checker checker : pieces) {
+    		if (mask == 0) {
+    			checker.capture();
+    			continue;
+    		}
+    		int square = Long.numberOfTrailingZeros(mask);
+    		mask &= mask - 1;
+    		int row = variant.row(square);
+    		int column = variant.column(square);
+    		checker.reset();
+    		checker.setPosition(row, column);
+    		board[row][column] = checker;
+    		count++;
+    	}
+    	return count;
+    }
+    
+    /**
+     * Gets the packed position, which any thread can read while the game is played.
+     * @return The published state of the board.
+     */
+    public BoardState getState() {
+    	return state;
+    }
+    
+    /**
+     * Adds an observer to be told about each change to the board.
+     * @param observer The observer.
+     */
+    public synchronized void addObserver(BoardObserver observer) {
+    	BoardObserver[] added = Arrays.copyOf(observers, observers.length + 1);
+    	added[observers.length] = observer;
+    	observers = added;
+    }
+    
+    /**
+     * Removes every observer, so a board reused for another game tells nobody from the last one.
+     */
+    public synchronized void clearObservers() {
+    	observers = new BoardObserver[0];
+    }
+    
+    /**
+     * Removes an observer.
+     * @param observer The observer.
+     */
+    public synchronized void removeObserver(BoardObserver observer) {
+    	for (int i = 0; i < observers.length; i++) {
+    		if (observers[i] == observer) {
+    			BoardObserver[] removed = new BoardObserver[observers.length - 1];
+    			System.arraycopy(observers, 0, removed, 0, i);
+    			System.arraycopy(observers, i + 1, removed, i, removed.length - i);
+    			observers = removed;
+    			return;
+    		}
+    	}
+    }
+    
+    
     /**
      * Removes a piece that has been jumped and updates the count.
      * @param row       The x coordinate of the piece being jumped.
@@ -103,12 +276,13 @@ public class CheckerBoard {
      *  finishing x coordinate, and finishing y coordinate of the move.  Must be a valid move.
      */
     public void movePiece(int[] coordinates) { 
+    	boolean isJump;
     	try{
     		int fromRow = coordinates[0];
 	        int fromColumn = coordinates[1];
 	        int toRow = coordinates[2];
 	        int toColumn = coordinates[3];
-	        boolean isJump = Math.abs(toRow - fromRow) == 2;
+	        isJump = Math.abs(toRow - fromRow) == 2;
 	        Checker piece = (Checker) board[fromRow][fromColumn];
 	        
 	        board[toRow][toColumn] = board[fromRow][fromColumn];
@@ -123,6 +297,12 @@ public class CheckerBoard {
     	}
     	catch (RuntimeException e) {
     		System.err.println("Invalid parameter - Coordinates must be a valid move");
+    		return;
+    	}
+    	state.move(variant.square(coordinates[0], coordinates[1]), variant.square(coordinates[2], coordinates[3]),
+    			isJump ? variant.square((coordinates[0] + coordinates[2]) / 2, (coordinates[1] + coordinates[3]) / 2) : -1);
+    	for (BoardObserver observer : observers) {
+    		observer.pieceMoved(coordinates[0], coordinates[1], coordinates[2], coordinates[3], isJump);
     	}
     }
         
@@ -202,6 +382,14 @@ public class CheckerBoard {
         return string;  
     }
       
+    /**
+     * Gets the variant being played.
+     * @return  The variant.
+     */
+     public Variant getVariant() {
+        return variant;
+    }
+      
     /**
      * Gets the board.
      * @return  The board.
@@ -249,6 +437,10 @@ public class CheckerBoard {
          Square temp = currentPlayer;
          currentPlayer = opponent;
          opponent = temp;
+         state.switchTurn(currentPlayer.isX());
+         for (BoardObserver observer : observers) {
+        	 observer.turnSwitched(currentPlayer.isX());
+         }
      }
      
      
@@ -321,6 +513,12 @@ public class CheckerBoard {
     	/** Whether the Checker has been captured */
     	private boolean captured;
     	
+    	/** The row the Checker starts the game on */
+    	private final int homeRow;
+    	
+    	/** The column the Checker starts the game on */
+    	private final int homeColumn;
+    	
         /**
          * Constructor.
          * @param row       The x coordinate.
@@ -330,6 +528,8 @@ public class CheckerBoard {
         Checker(int row, int column, String type) {
             super(type);
             position = new int[] {row, column};
+            homeRow = row;
+            homeColumn = column;
             if (isX()) {
                 xCount ++;
             } else {
@@ -348,6 +548,14 @@ public class CheckerBoard {
             position[1] = column;
         }
         
+        /**
+         * Returns this Checker to its starting square, uncaptured.
+         */
+        void reset() {
+        	setPosition(homeRow, homeColumn);
+        	captured = false;
+        }
+        
         /**
          * Sets this Checker's captured to true; 
          */
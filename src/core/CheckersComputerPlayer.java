@@ -20,106 +20,277 @@ public class CheckersComputerPlayer {
 	/** Random object used to select a piece to play */
 	public Random random = new Random();
 	
+	/** The default number of plies searched for each move */
+	public static final int DEFAULT_DEPTH = 8;
+	
+	/** Evaluator used to score the position after each candidate move */
+	private BatchEvaluator evaluator = BatchEvaluator.create(EvaluationWeights.defaults());
+	
+	/** Cache of earlier analysis, shared with other players and processes if file-backed */
+	private AnalysisCache cache = AnalysisCache.inMemory(1 << 14);
+	
+	/** Engine used when looking more than one ply ahead */
+	private Engine engine = new AlphaBetaSearch(evaluator, cache);
+	
+	/** The evaluator a new player starts with */
+	private final BatchEvaluator defaultEvaluator = evaluator;
+	
+	/** The cache a new player starts with */
+	private final AnalysisCache defaultCache = cache;
+	
+	/** The engine a new player starts with */
+	private final Engine defaultEngine = engine;
+	
+	/** When the engine stops searching, a depth of 1 only looks at the next position */
+	private SearchLimits limits = SearchLimits.depth(DEFAULT_DEPTH);
+	
+	/** The deepest search on a board that does not fit the 8x8 engine */
+	private static final int VARIANT_DEPTH = 6;
+	
+	/** Engine for boards that do not fit the 8x8 engine, made when first needed */
+	private VariantSearch variantSearch;
+	
+	/** The positions of the game so far, null if draws are not scored */
+	private PositionHistory history;
+	
+	/** The time a scheduled search has for a move when the limits give no time in ms */
+	private static final long SCHEDULED_MOVE_MILLIS = 2000;
+	
+	/** The scheduler alpha-beta searches are run on, null to search on the calling thread */
+	private EngineScheduler scheduler;
+	
+	/** The id of the game on the scheduler */
+	private long game;
+	
+	/** The strength searched at on the scheduler */
+	private EngineScheduler.Level level;
+	
+	/** Candidate moves for the current turn */
+	private final int[] moves = new int[Bitboards.MAX_MOVES];
+	
+	/** The positions reached by each candidate move */
+	private final PositionBlock candidates = new PositionBlock(Bitboards.MAX_MOVES);
+	
 	
 	/**
 	 * Constructor
 	 * @param board  The CheckerBoard being played on.
 	 */
 	public CheckersComputerPlayer(CheckerBoard board) {
+		setBoard(board);
+	}
+	
+	/**
+	 * Moves the player to another board, so a finished player can be reused.
+	 * @param board  The CheckerBoard to play on.
+	 */
+	public void setBoard(CheckerBoard board) {
 		this.board = board;
 		pieces = board.getOPieces();
 	}
 	
 	/**
 	 * Plays one complete turn for the computer.
+	 * Searches with the engine, or scores each next position when the depth limit is 1
+	 * or the engine returns no move.
 	 */
 	public void playTurn() {
-		int start = random.nextInt(12);
-		Checker current;
-		
-		for (int i = start; i < pieces.length; i++) {
-			current = pieces[i];
-			if (! current.isCaptured()) {
-				boolean madeJump = tryJump(current);
-				if (madeJump) return;
-			}
+		if (board.getVariant() != Variant.ENGLISH) {
+			playVariantTurn();
+			return;
 		}
-		for (int i = start -1; i >= 0; i--) {
-			current = pieces[i];
-			if (! current.isCaptured()) {
-				boolean madeJump = tryJump(current);
-				if (madeJump) return;
+		int x = Bitboards.xMask(board);
+		int o = Bitboards.oMask(board);
+		if (limits.getDepth() > 1) {
+			SearchResult result = scheduler != null && engine instanceof AlphaBetaSearch
+					? scheduledSearch(x, o) : engine.search(x, o, false, limits);
+			cache.merge();
+			if (result.getBestMove() != 0) {
+				board.movePiece(Bitboards.toCoordinates(result.getBestMove()));
+				return;
 			}
+			//no move when the side has none, or when an interrupt stopped the first iteration
 		}
-		for (int i = start; i < pieces.length; i++) {
-			current = pieces[i];
-			if (! current.isCaptured()) {
-				boolean madeMove = tryMove(current);
-				if (madeMove) return;
-			}
+		playBestNextPosition(x, o);
+	}
+	
+	/**
+	 * Searches on the scheduler at the player's level, waiting for the result.
+	 * The deadline is the time limit, or SCHEDULED_MOVE_MILLIS if there is none.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 * @return The result of the search.
+	 */
+	private SearchResult scheduledSearch(int x, int o) {
+		long millis = limits.getMillis() != Long.MAX_VALUE ? limits.getMillis() : SCHEDULED_MOVE_MILLIS;
+		return scheduler.submit(game, (AlphaBetaSearch) engine, x, o, false, level,
+				System.nanoTime() + millis * 1_000_000L).join();
+	}
+	
+	/**
+	 * Plays one turn on a board that does not fit the 8x8 engine.
+	 */
+	private void playVariantTurn() {
+		Variant variant = board.getVariant();
+		if (variantSearch == null || variantSearch.getVariant() != variant) {
+			variantSearch = new VariantSearch(variant, evaluator.getWeights());
 		}
-		for (int i = start -1; i >= 0; i--) {
-			current = pieces[i];
-			if (! current.isCaptured()) {
-				boolean madeMove = tryMove(current);
-				if (madeMove) return;
-			}
+		int move = variantSearch.search(VariantBoards.xMask(board), VariantBoards.oMask(board), false,
+				Math.min(limits.getDepth(), VARIANT_DEPTH));
+		if (move != 0) {
+			board.movePiece(VariantBoards.toCoordinates(variant, move));
 		}
+	}
+	
+	/**
+	 * Plays the move leading to the best scoring next position.
+	 * Every legal move is tried on the packed board, the resulting positions are
+	 * scored together and the best one for O is played.  Ties are broken randomly.
+	 * @param x The mask of X checkers.
+	 * @param o The mask of O checkers.
+	 */
+	private void playBestNextPosition(int x, int o) {
+		int count = Bitboards.generateMoves(x, o, false, moves);
+		if (count == 0) return;
+		
+		candidates.clear();
+		for (int i = 0; i < count; i++) {
+			candidates.add(Bitboards.moveOpponent(x, moves[i]), Bitboards.moveMover(o, moves[i]));
+		}
+		evaluator.evaluate(candidates);
 		
+		int start = random.nextInt(count);
+		int best = start;
+		for (int n = 1; n < count; n++) {
+			int i = (start + n) % count;
+			if (candidates.getScore(i) < candidates.getScore(best)) {
+				best = i;
+			}
+		}
+		board.movePiece(Bitboards.toCoordinates(moves[best]));
 	}	
 	
 	/**
-	 * Attempts to complete a jump move.
-	 * @param checker The checker to play.
-	 * @return if the move was completed.
-	 */
-	public boolean tryJump(Checker checker) {
-		boolean successful = false;
-		int fromRow = checker.getPosition()[0];
-		int fromColumn = checker.getPosition()[1];
-		int[] move = new int[4];
-		move[0] = fromRow;
-		move[1] = fromColumn;
-		move[2] = fromRow - 2;
-		move[3] = fromColumn - 2;
-		if (CheckersLogic.isValid(move, board)) {
-			board.movePiece(move);
-			successful = true;
-		} else {
-			move[3] = fromColumn + 2;
-			if (CheckersLogic.isValid(move, board)) {
-				board.movePiece(move);
-				successful = true;
-			}
+	 * Sets the evaluator used to score candidate moves.
+	 * @param evaluator The evaluator.
+	 */
+	public void setEvaluator(BatchEvaluator evaluator) {
+		this.evaluator = evaluator;
+		variantSearch = null;
+		if (engine instanceof AlphaBetaSearch) {
+			setEngine(new AlphaBetaSearch(evaluator, cache));
 		}
-		return successful;
-	}
-	
-	/**
-	 * Attempts to complete a non-jump move.
-	 * @param checker The checker to play.
-	 * @return if the move was completed.
-	 */
-	public boolean tryMove(Checker checker) {
-		boolean successful = false;
-		int fromRow = checker.getPosition()[0];
-		int fromColumn = checker.getPosition()[1];
-		int[] move = new int[4];
-		move[0] = fromRow;
-		move[1] = fromColumn;
-		move[2] = fromRow - 1;
-		move[3] = fromColumn - 1;
-		if (CheckersLogic.isValid(move, board)) {
-			board.movePiece(move);
-			successful = true;
-		} else {
-			move[3] = fromColumn + 1;
-			if (CheckersLogic.isValid(move, board)) {
-				board.movePiece(move);
-				successful = true;
-			}
+	}
+	
+	/**
+	 * Sets the cache used to store and reuse analysis.
+	 * @param cache The cache.
+	 */
+	public void setAnalysisCache(AnalysisCache cache) {
+		this.cache = cache;
+		if (engine instanceof AlphaBetaSearch) {
+			setEngine(new AlphaBetaSearch(evaluator, cache));
+		}
+	}
+	
+	/**
+	 * Sets the engine used to choose moves.
+	 * @param engine The engine.
+	 */
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+		if (engine instanceof AlphaBetaSearch) {
+			((AlphaBetaSearch) engine).setHistory(history);
+		}
+	}
+	
+	/**
+	 * Gets the engine used to choose moves.
+	 * @return The engine.
+	 */
+	public Engine getEngine() {
+		return engine;
+	}
+	
+	/**
+	 * Sets the positions of the game so far, so the engine can score draws.
+	 * @param history The history, or null to not score draws.
+	 */
+	public void setHistory(PositionHistory history) {
+		this.history = history;
+		setEngine(engine);
+	}
+	
+	/**
+	 * Runs the player's alpha-beta searches on a scheduler shared with other games.
+	 * The level then bounds the search instead of the depth and node limits.
+	 * The scheduler the player leaves forgets the measurements of its last game.
+	 * @param scheduler The scheduler, or null to search on the calling thread.
+	 * @param game      The id of the game on the scheduler.
+	 * @param level     The strength to search at.
+	 */
+	public void setScheduler(EngineScheduler scheduler, long game, EngineScheduler.Level level) {
+		if (this.scheduler != null && (this.scheduler != scheduler || this.game != game)) {
+			this.scheduler.forget(this.game);
+		}
+		this.scheduler = scheduler;
+		this.game = game;
+		this.level = level;
+	}
+	
+	/**
+	 * Puts back the evaluator, cache, engine, limits and history a new player starts with,
+	 * and empties the cache and the engine's move ordering, so a player reused for another
+	 * game carries nothing over from the last one.
+	 */
+	public void restoreDefaults() {
+		evaluator = defaultEvaluator;
+		cache = defaultCache;
+		cache.clear();
+		((AlphaBetaSearch) defaultEngine).clearMoveOrdering();
+		variantSearch = null;
+		limits = SearchLimits.depth(DEFAULT_DEPTH);
+		history = null;
+		setEngine(defaultEngine);
+	}
+	
+	/**
+	 * Checks if the player has the settings a new player starts with, apart from its search depth,
+	 * so a new player given the same depth plays the same way.
+	 * @return If only the search depth may differ from a new player's.
+	 */
+	public boolean hasDefaultSettings() {
+		return evaluator == defaultEvaluator && cache == defaultCache && engine == defaultEngine
+				&& history == null && scheduler == null
+				&& limits.getNodes() == Long.MAX_VALUE && limits.getMillis() == Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Gets the number of plies searched for each move.
+	 * @return The depth.
+	 */
+	public int getSearchDepth() {
+		return limits.getDepth();
+	}
+	
+	/**
+	 * Sets when the engine stops searching.
+	 * @param limits The limits.
+	 */
+	public void setLimits(SearchLimits limits) {
+		this.limits = limits;
+	}
+	
+	/**
+	 * Sets the number of plies searched for each move.
+	 * @param searchDepth The depth, 1 or more.
+	 * @throws IllegalArgumentException if the depth is out of range.
+	 */
+	public void setSearchDepth(int searchDepth) throws IllegalArgumentException {
+		if (searchDepth < 1 || searchDepth >= AlphaBetaSearch.MAX_PLY) {
+			throw new IllegalArgumentException("search depth out of range: " + searchDepth);
 		}
-		return successful;
+		limits = SearchLimits.depth(searchDepth);
 	}
 	
 	/**
@@ -28,7 +28,7 @@ public class CheckersLogic {
         Square fromSquare;
         Square toSquare;
         
-        if (! onBoard(coordinates)) return false;	//out of bounds
+        if (! onBoard(coordinates, board)) return false;	//out of bounds
             
         fromSquare = board.getSquare(fromRow, fromColumn);
         toSquare = board.getSquare(toRow, toColumn);
@@ -48,15 +48,12 @@ public class CheckersLogic {
      * Checks if a move is within the bounds of the board.
      * @param coordinates   Array containing the starting row, starting column,
      *      finishing row, and finishing column of the move to be checked.
+     * @param board 	The CheckerBoard being played on.
      * @return If the move is within bounds.
      */
-    private static boolean onBoard(int[] coordinates) {
-        for (int i : coordinates) {
-            if (i < 1 || i > 8) {
-                return false;
-            }
-        }
-        return true;
+    private static boolean onBoard(int[] coordinates, CheckerBoard board) {
+        Variant variant = board.getVariant();
+        return variant.onBoard(coordinates[0], coordinates[1]) && variant.onBoard(coordinates[2], coordinates[3]);
     }
     
     /**
@@ -156,37 +153,46 @@ public class CheckersLogic {
      */
     public static boolean canMove(int row, int column, CheckerBoard board){
         Square square = board.getSquare(row, column);
-        int fromRow = row;
-        int fromColumn = column;
-        int moveLeft = fromColumn - 1;
-        int moveRight = fromColumn + 1;
-        int jumpLeft = fromColumn - 2;
-        int jumpRight = fromColumn + 2;
-        int moveRow = 0;
-        int jumpRow = 0;
-        boolean canMove = false;
-        
-        if(square.isX()) {
-            moveRow = fromRow + 1;
-            jumpRow = fromRow + 2;
-        } else if(square.isO()) {
-            moveRow = fromRow - 1;
-            jumpRow = fromRow - 2;
+        return isTurn(square, board) && hasMove(square, row, column, board);
+    }    
+    
+    /**
+     * Checks if a piece has a move or jump available, whichever side is to move.
+     * Checks each square directly so the hot path of checkWin allocates nothing.
+     * @param piece     The piece.
+     * @param row       The x coordinate of the piece.
+     * @param column    The y coordinate of the piece.
+     * @param board     The CheckerBoard being played on.
+     * @return If the piece has a move or jump available.
+     */
+    private static boolean hasMove(Square piece, int row, int column, CheckerBoard board) {
+        int direction = piece.isX() ? 1 : -1;
+        return canStep(piece, row, column, row + direction, column - 1, board)
+                || canStep(piece, row, column, row + direction, column + 1, board)
+                || canStep(piece, row, column, row + 2 * direction, column - 2, board)
+                || canStep(piece, row, column, row + 2 * direction, column + 2, board);
+    }
+    
+    /**
+     * Checks if a piece can move or jump to a square.
+     * @param piece         The piece.
+     * @param fromRow       The x coordinate of the piece.
+     * @param fromColumn    The y coordinate of the piece.
+     * @param toRow         The x coordinate of the destination.
+     * @param toColumn      The y coordinate of the destination.
+     * @param board         The CheckerBoard being played on.
+     * @return If the destination is on the board and empty, and a jump passes over an opposing piece.
+     */
+    private static boolean canStep(Square piece, int fromRow, int fromColumn, int toRow, int toColumn, CheckerBoard board) {
+        if (! board.getVariant().onBoard(toRow, toColumn) || ! isEmpty(board.getSquare(toRow, toColumn))) {
+            return false;
         }
-        //get all possible moves (valid and invalid)
-        int[][] possibleMoves = { {fromRow, fromColumn, moveRow, moveLeft}, 
-                {fromRow, fromColumn, moveRow, moveRight},
-                {fromRow, fromColumn, jumpRow, jumpLeft},
-                {fromRow, fromColumn, jumpRow, jumpRight} };
-        
-        //check any move is valid
-        for (int[] coordinates : possibleMoves) {
-            if (isValid(coordinates, board)){
-                canMove = true;        
-            }
+        if (Math.abs(toRow - fromRow) == 1) {
+            return true;
         }
-        return canMove;
-    }    
+        Square jumped = board.getSquare((fromRow + toRow) / 2, (fromColumn + toColumn) / 2);
+        return piece.isX() ? jumped.isO() : jumped.isX();
+    }
     
     /**
      * Checks if the current player has won.
@@ -204,12 +210,9 @@ public class CheckersLogic {
             for (Square square : row) {
                 if (isOpponent(square, board)) {
                     int[] position = square.getPosition();
-                    board.switchTurn();								//switch opponent to current player so moves can be checked
-                    if (canMove(position[0],position[1], board)) {	//opponent has valid move available
-                    	board.switchTurn();;						//switch back	
+                    if (hasMove(square, position[0], position[1], board)) {	//opponent has valid move available
                         return false;
                     }
-                    board.switchTurn();								//switch back
                 }
             }
         }
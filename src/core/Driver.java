@@ -1,6 +1,13 @@
 package core;
 
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import ui.CheckersTextConsole;
 
 /**
@@ -12,13 +19,51 @@ import ui.CheckersTextConsole;
  */
 public class Driver {
 	
+	/** Number of buckets in a new analysis cache file (64MB) */
+	private static final int CACHE_BUCKETS = 1 << 20;
+	
+	/** Number of nodes in the Monte Carlo tree */
+	private static final int MCTS_POOL = 1 << 20;
+	
+	/** Time the Monte Carlo engine searches for each move in ms */
+	private static final int MCTS_MILLIS = 1000;
+	
+	/** Time waited for the event log to be written at the end of the game in seconds */
+	private static final int EVENT_LOG_SECONDS = 5;
+	
 	/**
 	 * Main method to run game.
-	 * @param args	The args.
+	 * @param args	The args.  --cache followed by a file keeps the computer's analysis between runs.
+	 * 		--engine mcts plays the computer with Monte Carlo Tree Search instead of alpha-beta.
+	 * 		--weights followed by a file gives the computer evaluation weights written by EvaluationTuner.
+	 * 		--variant 10x10 plays on a 10x10 board with 20 checkers a side.
+	 * 		--event-log followed by a file writes every event of the game to the file.
 	 */
 	public static void main(String[] args) {
 		
 		Driver driver = new Driver();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].startsWith("--") && i == args.length - 1) {
+				System.err.println("Usage error - " + args[i] + " must be followed by a value");
+				return;
+			}
+			if (args[i].equals("--cache")) {
+				driver.cachePath = Paths.get(args[++i]);
+			} else if (args[i].equals("--engine")) {
+				driver.engineName = args[++i];
+			} else if (args[i].equals("--weights")) {
+				driver.weightsPath = Paths.get(args[++i]);
+			} else if (args[i].equals("--event-log")) {
+				driver.eventLogPath = Paths.get(args[++i]);
+			} else if (args[i].equals("--variant")) {
+				try {
+					driver.setVariant(Variant.forName(args[++i]));
+				}
+				catch (IllegalArgumentException e) {
+					System.err.println("Could not set variant - " + e.getMessage());
+				}
+			}
+		}
 		driver.run();
 	}
 	
@@ -37,27 +82,74 @@ public class Driver {
     
     /** If the game has been won */
     private  boolean won;
+    
+    /** If the game has been drawn */
+    private boolean drawn;
+    
+    /** The positions of the game so far, used to detect draws */
+    private PositionHistory history;
 	
 	/** The mode for the game (1 for 1-Player, 2 for 2-Player)*/
 	int gameMode;
 	
+	/** The file holding the computer's analysis, null to keep it in memory */
+	private Path cachePath;
+	
+	/** The computer's analysis cache when it is file-backed */
+	private AnalysisCache cache;
+	
+	/** The file holding tuned evaluation weights, null to use the defaults */
+	private Path weightsPath;
+	
+	/** The name of the computer's engine, alpha-beta or mcts */
+	private String engineName = "alpha-beta";
+	
+	/** The file the events of the game are written to, null to not write them */
+	private Path eventLogPath;
+	
+	/** The events of the game, published to any subscribers */
+	private GameEventPublisher events;
+	
+	/** The subscriber writing the event log, null if there is none */
+	private GameEventPublisher.LineWriter eventLog;
+	
+	/** Background analysis of the position while a player chooses a move, null until first turned on */
+	private LiveAnalysis analysis;
+	
+	/** The moves of the game, kept to take them back, null on boards other than 8x8 */
+	private GameHistory gameHistory;
+	
 	
     /**
      * Runs a complete game of Chess.
      */
 	void run() {
 		//start game
+    	events = new GameEventPublisher(board);
+    	openEventLog();
     	console.begin();
     	
     	//select 1 player or 2 player mode
     	int mode = chooseMode(); 
     	if (mode == 1) {
     		computer = new CheckersComputerPlayer(board);
+    		computer.setHistory(history);
+    		loadWeights();
+    		if (engineName.equals("mcts")) {
+    			computer.setEngine(new MctsSearch(Runtime.getRuntime().availableProcessors(), MCTS_POOL));
+    			computer.setLimits(SearchLimits.time(MCTS_MILLIS));
+    		}
+    		openCache();
     		console.confirmOnePlayerMode();
     	}
+    	console.setAnalysisToggle(this::toggleAnalysis);
+    	if (board.getVariant() == Variant.ENGLISH) {
+    		gameHistory = new GameHistory(board);
+    		console.setTakeBackRequest(this::takeBack);
+    	}
 
     	//play game
-    	while (! won) {			 
+    	while (! won && ! drawn) {			 
             console.displayBoard(board);
             if (mode == 1 && board.getCurrentPlayer().isO()) {
             	playComputerTurn();
@@ -67,10 +159,18 @@ public class Driver {
             }
             won = CheckersLogic.checkWin(board);
             board.switchTurn(); 
+            history.push(Zobrist.hash(board), true);	//every move advances a checker
+            drawn = ! won && history.isDraw();
         }
     	
     	//end game
-        announceWin(); 
+        if (drawn) {
+        	announceDraw();
+        } else {
+        	announceWin();
+        }
+        closeEventLog();
+        closeCache();
 	}
 
     
@@ -82,10 +182,21 @@ public class Driver {
     	console = new CheckersTextConsole();
     	coordinates = new int[] {0, 0, 0, 0};
     	won = false;
+    	drawn = false;
+    	history = new PositionHistory(Zobrist.hash(board));
     }
     
 	
     
+    /**
+     * Sets the variant to play, before the game starts.
+     * @param variant The variant.
+     */
+    void setVariant(Variant variant) {
+    	board = new CheckerBoard(variant);
+    	history = new PositionHistory(Zobrist.hash(board));
+    }
+    
     /**
      * Allows user to select 1-Player or 2-Player game.
      * @return 1 for 1-Player, 2 for 2-Player
@@ -103,24 +214,143 @@ public class Driver {
     }
     
     /**
-     * Plays a single move for one player.                                   
+     * Gives the computer the tuned evaluation weights, if a file was given.
      */
-    private void playTurn(){	
-        boolean valid = false;
-        
+    private void loadWeights() {
+    	if (weightsPath == null) return;
+    	try {
+    		computer.setEvaluator(BatchEvaluator.create(EvaluationWeights.load(weightsPath)));
+    	}
+    	catch (IOException e) {
+    		System.err.println("Could not load evaluation weights - " + e.getMessage());
+    	}
+    }
+    
+    /**
+     * Gives the computer the analysis cache file, if one was requested.
+     */
+    private void openCache() {
+    	if (cachePath == null) return;
+    	try {
+    		cache = AnalysisCache.open(cachePath, CACHE_BUCKETS);
+    		computer.setAnalysisCache(cache);
+    	}
+    	catch (IOException e) {
+    		System.err.println("Could not open analysis cache - " + e.getMessage());
+    	}
+    }
+    
+    /**
+     * Subscribes the event log file to the game's events, if one was requested.
+     */
+    private void openEventLog() {
+    	if (eventLogPath == null) return;
+    	try {
+    		eventLog = new GameEventPublisher.LineWriter(Files.newBufferedWriter(eventLogPath));
+    		events.subscribe(eventLog);
+    	}
+    	catch (IOException e) {
+    		System.err.println("Could not open event log - " + e.getMessage());
+    	}
+    }
+    
+    /**
+     * Ends the event stream and waits for the event log to be written.
+     */
+    private void closeEventLog() {
+    	events.close();
+    	if (eventLog == null) return;
+    	try {
+    		eventLog.getClosed().get(EVENT_LOG_SECONDS, TimeUnit.SECONDS);
+    	}
+    	catch (InterruptedException | ExecutionException | TimeoutException e) {
+    		System.err.println("Could not finish event log - " + e);
+    	}
+    	if (events.getDropped() > 0) {
+    		System.err.println("Event log is missing " + events.getDropped() + " events");
+    	}
+    }
+    
+    /**
+     * Saves and closes the analysis cache file, if one is open.
+     */
+    private void closeCache() {
+    	if (cache == null) return;
+    	try {
+    		cache.close();
+    	}
+    	catch (IOException e) {
+    		System.err.println("Could not save analysis cache - " + e.getMessage());
+    	}
+    }
+    
+    /**
+     * Turns background analysis on or off when the player asks.
+     */
+    private void toggleAnalysis() {
+    	if (board.getVariant() != Variant.ENGLISH) {
+    		console.analysisUnavailable();
+    		return;
+    	}
+    	if (analysis == null) {
+    		analysis = new LiveAnalysis(board, console);		//its cache is only allocated when wanted
+    	}
+    	boolean on = ! analysis.isEnabled();
+    	if (on) {
+    		console.analysisOn();
+    	} else {
+    		console.analysisOff();
+    	}
+    	analysis.setEnabled(on);
+    }
+    
+    /**
+     * Takes back the last move when the player asks, and the computer's reply too in a 1 player game.
+     */
+    private void takeBack() {
+    	int count = computer != null ? 2 : 1;
+    	if (gameHistory.getPlies() < count) {
+    		console.rejectTakeBack();
+    		return;
+    	}
+    	if (analysis != null) analysis.stop();
+    	gameHistory.takeBack(count);
+    	for (int i = 0; i < count; i++) {
+    		history.pop();
+    	}
+    	console.displayBoard(board);
+    	requestMove();
+    	if (analysis != null) analysis.start();
+    }
+    
+    /**
+     * Prompts the current player for a move.
+     */
+    private void requestMove() {
         if (board.getCurrentPlayer().isX()) {
             console.requestXMove();
         } else {
             console.requestOMove();
         }
+    }
+    
+    /**
+     * Plays a single move for one player.                                   
+     */
+    private void playTurn(){	
+        boolean valid = false;
+        
+        requestMove();
+        if (analysis != null) analysis.start();		//analyse while the player thinks, if turned on
         
         while (!valid) {
-            coordinates = console.getMove();	//get move from player
+            coordinates = console.getMove(board.getVariant().getSize());	//get move from player
             valid = CheckersLogic.isValid(coordinates, board);
             if (!valid) {
                 console.rejectInput();			//reject invalid move
             }
         }
+        if (analysis != null) analysis.stop();		//stop before the position changes
         board.movePiece(coordinates);			//make valid move
     }
     
@@ -142,8 +372,21 @@ public class Driver {
     	
     	//announce winner
         if (board.getCurrentPlayer().isX()) {
+        	events.gameOver(GameEvent.Result.O_WON);
             console.oWon();
-        } else console.xWon();
+        } else {
+        	events.gameOver(GameEvent.Result.X_WON);
+        	console.xWon();
+        }
+    }
+    
+    /**
+     * Ends the game as a draw.
+     */
+    private void announceDraw() {
+    	events.gameOver(GameEvent.Result.DRAW);
+    	console.displayBoard(board);
+    	console.draw();
     }
     
 }
@@ -0,0 +1,26 @@
+package core;
+
+/**
+ * Engine is a search which chooses a move for a packed position
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-10
+ */
+public interface Engine {
+
+	/**
+	 * Searches a position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param limits    When to stop searching.
+	 * @return The result of the search.
+	 */
+	SearchResult search(int x, int o, boolean xToMove, SearchLimits limits);
+
+	/**
+	 * Gets the name of the engine.
+	 * @return The name.
+	 */
+	String getName();
+}
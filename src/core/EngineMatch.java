@@ -0,0 +1,69 @@
+package core;
+
+/**
+ * EngineMatch plays the alpha-beta and Monte Carlo engines against each other
+ * with the same CPU time for every move
+ *  contains a main method
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-10
+ */
+public class EngineMatch {
+
+	/**
+	 * Main method to run a match.
+	 * The alpha-beta engine searches on one thread, so it is given the Monte Carlo
+	 * time multiplied by the number of Monte Carlo threads.
+	 * @param args	The number of games, the Monte Carlo time per move in ms and the number of Monte Carlo threads.
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		System.out.println("Equal CPU time: alpha-beta " + millis * threads + " ms on 1 thread, Monte Carlo "
+				+ millis + " ms on " + threads + (threads == 1 ? " thread" : " threads"));
+
+		AlphaBetaSearch alphaBeta = new AlphaBetaSearch(BatchEvaluator.create(EvaluationWeights.defaults()),
+				AnalysisCache.inMemory(1 << 16));
+		MctsSearch mcts = new MctsSearch(threads, 1 << 20);
+		SearchLimits[] limits = {SearchLimits.time(millis * threads), SearchLimits.time(millis)};
+
+		int[] wins = new int[2];
+		long[] nodes = new long[2];
+		long[] nanos = new long[2];
+		Engine[] engines = {alphaBeta, mcts};
+		for (int game = 0; game < games; game++) {
+			int xEngine = game % 2;			//alternate who moves first
+			CheckerBoard start = new CheckerBoard();
+			int x = Bitboards.xMask(start);
+			int o = Bitboards.oMask(start);
+			boolean xToMove = true;
+			while (true) {
+				int e = xToMove ? xEngine : 1 - xEngine;
+				SearchResult result = engines[e].search(x, o, xToMove, limits[e]);
+				nodes[e] += result.getNodes();
+				nanos[e] += result.getNanos();
+				int move = result.getBestMove();
+				if (move == 0) {
+					wins[1 - e]++;
+					break;
+				}
+				if (xToMove) {
+					x = Bitboards.moveMover(x, move);
+					o = Bitboards.moveOpponent(o, move);
+				} else {
+					o = Bitboards.moveMover(o, move);
+					x = Bitboards.moveOpponent(x, move);
+				}
+				xToMove = ! xToMove;
+			}
+		}
+		mcts.shutdown();
+
+		for (int e = 0; e < 2; e++) {
+			System.out.println(engines[e].getName() + ": " + wins[e] + " wins, "
+					+ nodes[e] * 1_000_000_000L / Math.max(1, nanos[e])
+					+ (e == 0 ? " nodes/s" : " playouts/s"));
+		}
+	}
+}
@@ -0,0 +1,516 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EngineScheduler runs the alpha-beta searches of many games on a fixed pool
+ * of worker threads, so one deep search cannot starve the other games
+ *  contains a main method comparing move latency with and without the scheduler
+ *
+ * Each search is given a node budget by its strength level and a deadline.
+ * Searches are cut into slices: a slice deepens the search by one iteration,
+ * visiting at most SLICE_NODES positions, and the search then goes back into
+ * the queue.  Because each game's engine keeps its results in its analysis
+ * cache, the next slice carries on where the last one stopped rather than
+ * starting again; a search whose slice could not finish its iteration is
+ * given twice as many positions for its next slice.  Workers take the first
+ * slice of every waiting search before deepening any search, so each game
+ * has a move early, then the slice whose deadline is closest.  Deadlines
+ * within DEADLINE_RESOLUTION of each other count as the same, and searches
+ * with the same deadline take turns.  No slice runs past its search's
+ * deadline by more than its first iteration, and a search whose deadline
+ * passes while it waits is finished without another slice.
+ * A search ends when it reaches its level's depth or budget, when its result
+ * is decided or when its deadline passes, with the deepest iteration
+ * completed; the first slice always completes one iteration, so there is
+ * always a move.
+ *
+ * The time each game's searches spend waiting in the queue is kept, along
+ * with the number of searches waiting.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-04
+ */
+public class EngineScheduler implements AutoCloseable {
+
+	/**
+	 * Level is a strength of computer player, which bounds how much it searches.
+	 */
+	public enum Level {
+
+		/** Looks a few plies ahead */
+		BEGINNER(4, 5_000),
+
+		/** Searches as deep as the default computer player */
+		INTERMEDIATE(CheckersComputerPlayer.DEFAULT_DEPTH, 100_000),
+
+		/** Searches as deep as its budget allows */
+		EXPERT(AlphaBetaSearch.MAX_PLY - 1, 1_000_000);
+
+		/** The deepest iteration searched */
+		private final int depth;
+
+		/** The number of positions a search may visit */
+		private final long nodes;
+
+		/**
+		 * Constructor
+		 * @param depth The deepest iteration searched.
+		 * @param nodes The number of positions a search may visit.
+		 */
+		Level(int depth, long nodes) {
+			this.depth = depth;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * Gets the deepest iteration searched.
+		 * @return The depth.
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Gets the number of positions a search may visit.
+		 * @return The number of positions.
+		 */
+		public long getNodes() {
+			return nodes;
+		}
+	}
+
+	/**
+	 * GameStats holds the scheduling measurements of one game.
+	 */
+	public static final class GameStats {
+
+		/** The number of searches completed */
+		private final LongAdder searches = new LongAdder();
+
+		/** The number of slices run */
+		private final LongAdder slices = new LongAdder();
+
+		/** The total time spent waiting in the queue in ns */
+		private final LongAdder waitNanos = new LongAdder();
+
+		/** The longest single wait in the queue in ns */
+		private final AtomicLong maxWaitNanos = new AtomicLong();
+
+		/**
+		 * Gets the number of searches completed.
+		 * @return The number of searches.
+		 */
+		public long getSearches() {
+			return searches.sum();
+		}
+
+		/**
+		 * Gets the number of slices run.
+		 * @return The number of slices.
+		 */
+		public long getSlices() {
+			return slices.sum();
+		}
+
+		/**
+		 * Gets the total time the game's searches spent waiting for a worker.
+		 * @return The time in ns.
+		 */
+		public long getWaitNanos() {
+			return waitNanos.sum();
+		}
+
+		/**
+		 * Gets the longest time one of the game's slices waited for a worker.
+		 * @return The time in ns.
+		 */
+		public long getMaxWaitNanos() {
+			return maxWaitNanos.get();
+		}
+	}
+
+	/**
+	 * Job is one search being run in slices.
+	 */
+	private static final class Job {
+
+		/** The game searching */
+		final GameStats stats;
+
+		/** The game's engine, used by one worker at a time */
+		final AlphaBetaSearch engine;
+
+		/** The mask of X checkers */
+		final int x;
+
+		/** The mask of O checkers */
+		final int o;
+
+		/** If X is the side to move */
+		final boolean xToMove;
+
+		/** The strength searched at */
+		final Level level;
+
+		/** The time from System.nanoTime() by which the move is wanted */
+		final long deadline;
+
+		/** The order the job was submitted in, to break ties between deadlines */
+		final long sequence;
+
+		/** The time the job was submitted from System.nanoTime() */
+		final long submitted;
+
+		/** Completed with the result */
+		final CompletableFuture<SearchResult> future = new CompletableFuture<>();
+
+		/** The time the job last went into the queue from System.nanoTime() */
+		long queued;
+
+		/** The number of positions visited so far */
+		long nodes;
+
+		/** The number of slices run so far */
+		int slices;
+
+		/** The most positions the next slice may visit */
+		long sliceNodes = SLICE_NODES;
+
+		/** The deepest completed iteration, null before the first slice */
+		SearchResult best;
+
+		/**
+		 * Constructor
+		 * @param stats     The game searching.
+		 * @param engine    The game's engine.
+		 * @param x         The mask of X checkers.
+		 * @param o         The mask of O checkers.
+		 * @param xToMove   If X is the side to move.
+		 * @param level     The strength searched at.
+		 * @param deadline  The time from System.nanoTime() by which the move is wanted.
+		 * @param sequence  The order the job was submitted in.
+		 */
+		Job(GameStats stats, AlphaBetaSearch engine, int x, int o, boolean xToMove, Level level, long deadline, long sequence) {
+			this.stats = stats;
+			this.engine = engine;
+			this.x = x;
+			this.o = o;
+			this.xToMove = xToMove;
+			this.level = level;
+			this.deadline = deadline;
+			this.sequence = sequence;
+			this.submitted = System.nanoTime();
+			this.queued = submitted;
+		}
+	}
+
+	/** The most positions the first slice of a search may visit */
+	public static final long SLICE_NODES = 20_000;
+
+	/** Deadlines closer together than this in ns are treated as the same */
+	public static final long DEADLINE_RESOLUTION = 50_000_000;
+
+	/** Jobs waiting for a worker: jobs without a move first, then closest deadline, then fewest slices run */
+	private final PriorityQueue<Job> queue = new PriorityQueue<>((a, b) -> {
+		if ((a.best == null) != (b.best == null)) {
+			return a.best == null ? -1 : 1;
+		}
+		long aDeadline = Math.floorDiv(a.deadline, DEADLINE_RESOLUTION);
+		long bDeadline = Math.floorDiv(b.deadline, DEADLINE_RESOLUTION);
+		if (aDeadline != bDeadline) {
+			return Long.compare(aDeadline, bDeadline);
+		}
+		if (a.slices != b.slices) {
+			return Integer.compare(a.slices, b.slices);
+		}
+		return Long.compare(a.sequence, b.sequence);
+	});
+
+	/** The measurements of each game */
+	private final ConcurrentHashMap<Long, GameStats> games = new ConcurrentHashMap<>();
+
+	/** The worker threads */
+	private final Thread[] workers;
+
+	/** The number of jobs submitted */
+	private long submittedJobs;
+
+	/** The number of searches completed */
+	private final LongAdder completed = new LongAdder();
+
+	/** If the scheduler has been closed */
+	private boolean closed;
+
+
+	/**
+	 * Constructor, starts the workers.
+	 * @param threads The number of worker threads.
+	 */
+	public EngineScheduler(int threads) {
+		workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Thread(this::work, "engine-scheduler-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Queues a search.
+	 * @param game      The id of the game searching, for its measurements.
+	 * @param engine    The game's engine, which must not be used elsewhere until the search completes.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param level     The strength to search at.
+	 * @param deadline  The time from System.nanoTime() by which the move is wanted.
+	 * @return Completed with the result of the deepest iteration searched, its nodes and time covering every slice.
+	 * @throws IllegalStateException if the scheduler is closed.
+	 */
+	public CompletableFuture<SearchResult> submit(long game, AlphaBetaSearch engine, int x, int o, boolean xToMove,
+			Level level, long deadline) throws IllegalStateException {
+		GameStats stats = games.computeIfAbsent(game, id -> new GameStats());
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("scheduler is closed");
+			}
+			Job job = new Job(stats, engine, x, o, xToMove, level, deadline, submittedJobs++);
+			queue.add(job);
+			notify();
+			return job.future;
+		}
+	}
+
+	/**
+	 * Runs slices until the scheduler is closed and the queue is empty.
+	 */
+	private void work() {
+		while (true) {
+			Job job;
+			synchronized (this) {
+				while (queue.isEmpty() && ! closed) {
+					try {
+						wait();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+				}
+				job = queue.poll();
+				if (job == null) {
+					return;
+				}
+			}
+			long now = System.nanoTime();
+			long wait = now - job.queued;
+			job.stats.waitNanos.add(wait);
+			job.stats.maxWaitNanos.accumulateAndGet(wait, Math::max);
+			boolean done = job.best != null && now >= job.deadline;		//ran out of time while waiting
+			if (! done) {
+				job.stats.slices.increment();
+				try {
+					done = runSlice(job);
+				}
+				catch (RuntimeException e) {
+					job.future.completeExceptionally(e);
+					continue;
+				}
+			}
+			if (done) {
+				SearchResult best = job.best;
+				job.stats.searches.increment();
+				completed.increment();
+				job.future.complete(new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(),
+						job.nodes, System.nanoTime() - job.submitted));
+				continue;
+			}
+			synchronized (this) {
+				job.queued = System.nanoTime();
+				queue.add(job);
+				notify();
+			}
+		}
+	}
+
+	/**
+	 * Deepens a search by one iteration, within the slice's budget.
+	 * @param job The search.
+	 * @return If the search is finished.
+	 */
+	private boolean runSlice(Job job) {
+		int depth = job.best == null ? 1 : job.best.getDepth() + 1;
+		long nodes = Math.min(job.sliceNodes, job.level.getNodes() - job.nodes);
+		long millis = Math.max(1, (job.deadline - System.nanoTime()) / 1_000_000);
+		SearchResult result = job.engine.search(job.x, job.o, job.xToMove, new SearchLimits(depth, nodes, millis));
+		job.nodes += result.getNodes();
+		job.slices++;
+		if (job.best == null || result.getDepth() > job.best.getDepth()) {
+			job.best = result;
+		} else {
+			job.sliceNodes *= 2;		//the iteration did not fit, so it is given more room next time
+		}
+		boolean closing;
+		synchronized (this) {
+			closing = closed;
+		}
+		return closing
+				|| job.best.getBestMove() == 0
+				|| job.best.getDepth() >= job.level.getDepth()
+				|| job.nodes >= job.level.getNodes()
+				|| Math.abs(job.best.getScore()) > AlphaBetaSearch.WIN - AlphaBetaSearch.MAX_PLY
+				|| System.nanoTime() >= job.deadline;
+	}
+
+	/**
+	 * Gets the number of searches waiting for a worker.
+	 * @return The number of searches.
+	 */
+	public synchronized int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the number of searches completed.
+	 * @return The number of searches.
+	 */
+	public long getCompleted() {
+		return completed.sum();
+	}
+
+	/**
+	 * Gets the measurements of a game.
+	 * @param game The id of the game.
+	 * @return The measurements, null if the game has not searched.
+	 */
+	public GameStats getStats(long game) {
+		return games.get(game);
+	}
+
+	/**
+	 * Forgets the measurements of a game once it is over.
+	 * @param game The id of the game.
+	 */
+	public void forget(long game) {
+		games.remove(game);
+	}
+
+	/**
+	 * Stops taking searches.  Queued searches finish after one more slice.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Main method to measure computer move latency as the number of concurrent games grows.
+	 * Each game asks for intermediate moves one after another, from the standard positions of
+	 * SearchBenchmark, once on the scheduler and once searching on its own thread with only
+	 * the level's limits, as computer players do without a scheduler.
+	 * @param args	[MOVES_PER_GAME [MOVE_MILLIS]]
+	 */
+	public static void main(String[] args) {
+		int moves = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		long moveMillis = args.length > 1 ? Long.parseLong(args[1]) : 250;
+		int threads = Runtime.getRuntime().availableProcessors();
+		System.out.printf("%d workers, %d ms per move, %d moves per game%n", threads, moveMillis, moves);
+		for (int i = 0; i < 5; i++) {		//warm up both ways of searching
+			try (EngineScheduler scheduler = new EngineScheduler(threads)) {
+				play(4, SearchBenchmark.POSITIONS.length, moveMillis, scheduler);
+			}
+			play(4, SearchBenchmark.POSITIONS.length, moveMillis, null);
+		}
+		for (int games : new int[] {4, 16, 64}) {
+			try (EngineScheduler scheduler = new EngineScheduler(threads)) {
+				report("scheduled", games, play(games, moves, moveMillis, scheduler), scheduler);
+			}
+			report("thread per game", games, play(games, moves, moveMillis, null), null);
+		}
+	}
+
+	/**
+	 * Plays the moves of every game at once and times each.
+	 * @param games         The number of games.
+	 * @param moves         The number of moves of each game.
+	 * @param moveMillis    The time each move is wanted within in ms.
+	 * @param scheduler     The scheduler, null to search on each game's own thread.
+	 * @return The time each move took in ns, sorted.
+	 */
+	private static long[] play(int games, int moves, long moveMillis, EngineScheduler scheduler) {
+		long[] latencies = new long[games * moves];
+		List<Thread> players = new ArrayList<>();
+		for (int g = 0; g < games; g++) {
+			int game = g;
+			Thread player = new Thread(() -> {
+				AlphaBetaSearch engine = new AlphaBetaSearch(BatchEvaluator.create(EvaluationWeights.defaults()),
+						AnalysisCache.inMemory(1 << 12));
+				for (int m = 0; m < moves; m++) {
+					PositionCodec.Position position = PositionCodec.fromText(
+							SearchBenchmark.POSITIONS[(game + m) % SearchBenchmark.POSITIONS.length], Variant.ENGLISH);
+					long start = System.nanoTime();
+					if (scheduler != null) {
+						scheduler.submit(game, engine, (int) position.x, (int) position.o, position.xToMove,
+								Level.INTERMEDIATE, start + moveMillis * 1_000_000L).join();
+					} else {
+						engine.search((int) position.x, (int) position.o, position.xToMove,
+								new SearchLimits(Level.INTERMEDIATE.getDepth(), Level.INTERMEDIATE.getNodes(), Long.MAX_VALUE));
+					}
+					latencies[game * moves + m] = System.nanoTime() - start;
+				}
+			});
+			player.start();
+			players.add(player);
+		}
+		for (Thread player : players) {
+			try {
+				player.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		Arrays.sort(latencies);
+		return latencies;
+	}
+
+	/**
+	 * Prints the move latencies of a run.
+	 * @param name      The name of the run.
+	 * @param games     The number of games.
+	 * @param latencies The time each move took in ns, sorted.
+	 * @param scheduler The scheduler, null if none was used.
+	 */
+	private static void report(String name, int games, long[] latencies, EngineScheduler scheduler) {
+		System.out.printf("%-16s %3d games: move p50 %5d ms, p99 %5d ms, max %5d ms", name, games,
+				latencies[latencies.length / 2] / 1_000_000, latencies[(int) (latencies.length * 0.99)] / 1_000_000,
+				latencies[latencies.length - 1] / 1_000_000);
+		if (scheduler != null) {
+			long maxWait = 0;
+			for (int game = 0; game < games; game++) {
+				maxWait = Math.max(maxWait, scheduler.getStats(game).getMaxWaitNanos());
+			}
+			System.out.printf(", longest queue wait %d ms", maxWait / 1_000_000);
+		}
+		System.out.println();
+	}
+}
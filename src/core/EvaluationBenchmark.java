@@ -0,0 +1,103 @@
+package core;
+
+import java.util.Random;
+
+/**
+ * EvaluationBenchmark measures how many positions per second each evaluator scores
+ *  contains a main method
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-03
+ */
+public class EvaluationBenchmark {
+
+	/** The number of positions in each block */
+	private static final int BLOCK_SIZE = 4096;
+
+	/** The number of times each block is scored per measurement */
+	private static final int ROUNDS = 2000;
+
+
+	/**
+	 * Main method to run the benchmark.
+	 * Build and run with the vector build in README.md to include the vector evaluator.
+	 * @param args	The args.
+	 */
+	public static void main(String[] args) {
+		EvaluationWeights weights = EvaluationWeights.defaults();
+		PositionBlock block = randomBlock(new Random(1), BLOCK_SIZE);
+		BatchEvaluator scalar = new BatchEvaluator(weights);
+		BatchEvaluator best = BatchEvaluator.create(weights);
+
+		int[] expected = new int[block.size()];
+		scalar.evaluate(block);
+		System.arraycopy(block.scores, 0, expected, 0, expected.length);
+		best.evaluate(block);
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] != block.scores[i]) {
+				System.err.println("Mismatch at position " + i + ": " + expected[i] + " != " + block.scores[i]);
+				System.exit(1);
+			}
+		}
+
+		System.out.println(scalar.getName() + ": " + measure(scalar, block) + " positions/s");
+		if (best.getClass() != BatchEvaluator.class) {
+			System.out.println(best.getName() + ": " + measure(best, block) + " positions/s");
+		}
+	}
+
+	/**
+	 * Measures the speed of an evaluator.
+	 * @param evaluator The evaluator.
+	 * @param block     The block of positions.
+	 * @return The number of positions scored per second.
+	 */
+	private static long measure(BatchEvaluator evaluator, PositionBlock block) {
+		for (int i = 0; i < ROUNDS; i++) {		//warm up
+			evaluator.evaluate(block);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			evaluator.evaluate(block);
+		}
+		long elapsed = System.nanoTime() - start;
+		return (long) ROUNDS * block.size() * 1_000_000_000L / Math.max(1, elapsed);
+	}
+
+	/**
+	 * Builds a block of random positions reached by random legal moves.
+	 * @param random    The random number generator.
+	 * @param size      The number of positions.
+	 * @return The block.
+	 */
+	static PositionBlock randomBlock(Random random, int size) {
+		PositionBlock block = new PositionBlock(size);
+		int[] moves = new int[Bitboards.MAX_MOVES];
+		int x = 0;
+		int o = 0;
+		boolean xToMove = true;
+		int count = 0;
+		while (block.size() < size) {
+			if (count == 0) {
+				CheckerBoard board = new CheckerBoard();
+				x = Bitboards.xMask(board);
+				o = Bitboards.oMask(board);
+				xToMove = true;
+			}
+			count = Bitboards.generateMoves(x, o, xToMove, moves);
+			if (count > 0) {
+				int move = moves[random.nextInt(count)];
+				if (xToMove) {
+					x = Bitboards.moveMover(x, move);
+					o = Bitboards.moveOpponent(o, move);
+				} else {
+					o = Bitboards.moveMover(o, move);
+					x = Bitboards.moveOpponent(x, move);
+				}
+				xToMove = ! xToMove;
+				block.add(x, o);
+			}
+		}
+		return block;
+	}
+}
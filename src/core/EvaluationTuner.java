@@ -0,0 +1,390 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EvaluationTuner fits the evaluation weights to the results of recorded games
+ *  contains a main method to record self-play games and to tune weights
+ *
+ * Every position of a game is labelled with the game's result.  The weights are
+ * fitted by minimising the logistic loss between the result and the sigmoid of
+ * the evaluation (Texel's method).  The scale of the sigmoid is fitted first to
+ * the starting weights, so the tuned weights stay in the same units.  The terms
+ * of each position are computed once and kept in byte arrays, and each
+ * gradient is summed over slices of the arrays in parallel with fork/join.
+ *
+ * A corpus is a file of 9 byte records: [X mask:4][O mask:4][result:1], where
+ * the result is 2 for a win by X, 1 for a draw and 0 for a win by O.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-24
+ */
+public class EvaluationTuner {
+
+	/** The size of a corpus record in bytes */
+	public static final int RECORD_BYTES = 9;
+
+	/** The number of positions summed by one fork/join task */
+	private static final int SLICE = 1 << 15;
+
+	/** The number of random moves at the start of each self-play game */
+	private static final int RANDOM_PLIES = 8;
+
+	/** The depth searched for each self-play move */
+	private static final int SELF_PLAY_DEPTH = 3;
+
+	/** The step size of the optimiser in weight units */
+	private static final double LEARNING_RATE = 0.5;
+
+	/** The material term of each position */
+	private final byte[] material;
+
+	/** The advancement term of each position */
+	private final byte[] advancement;
+
+	/** The mobility term of each position */
+	private final byte[] mobility;
+
+	/** The result of each position's game, 0 to 2 */
+	private final byte[] results;
+
+	/** The number of positions */
+	private int size;
+
+	/** The scale of the sigmoid */
+	private double scale;
+
+	/** The pool summing gradients */
+	private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+
+	/**
+	 * Constructor
+	 * @param capacity The largest number of positions.
+	 */
+	public EvaluationTuner(int capacity) {
+		material = new byte[capacity];
+		advancement = new byte[capacity];
+		mobility = new byte[capacity];
+		results = new byte[capacity];
+	}
+
+	/**
+	 * Adds a position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param result    2 if X won the game, 1 for a draw, 0 if O won.
+	 */
+	public void add(int x, int o, int result) {
+		material[size] = (byte) BatchEvaluator.material(x, o);
+		advancement[size] = (byte) BatchEvaluator.advancement(x, o);
+		mobility[size] = (byte) BatchEvaluator.mobility(x, o);
+		results[size] = (byte) result;
+		size++;
+	}
+
+	/**
+	 * Reads every position of a corpus file.
+	 * @param corpus The corpus file.
+	 * @return The tuner holding the positions.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static EvaluationTuner load(Path corpus) throws IOException {
+		long records = Files.size(corpus) / RECORD_BYTES;
+		if (records > Integer.MAX_VALUE - 8) {
+			throw new IOException("corpus too large: " + records + " positions");
+		}
+		EvaluationTuner tuner = new EvaluationTuner((int) records);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(corpus), 1 << 16))) {
+			for (long i = 0; i < records; i++) {
+				tuner.add(in.readInt(), in.readInt(), in.readByte());
+			}
+		}
+		return tuner;
+	}
+
+	/**
+	 * Gets the number of positions.
+	 * @return The number of positions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sums the loss and its gradient over a slice of the positions.
+	 */
+	private class Gradient extends RecursiveTask<double[]> {
+
+		/** Gradients are never serialized */
+		private static final long serialVersionUID = 1L;
+
+		/** The weights */
+		private final double w0, w1, w2;
+
+		/** The slice of positions */
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 * @param w0    The material weight.
+		 * @param w1    The advancement weight.
+		 * @param w2    The mobility weight.
+		 * @param from  The first position.
+		 * @param to    The position after the last.
+		 */
+		Gradient(double w0, double w1, double w2, int from, int to) {
+			this.w0 = w0;
+			this.w1 = w1;
+			this.w2 = w2;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Sums the slice, splitting it if it is large.
+		 * @return The loss and the gradient of each weight.
+		 */
+		@Override
+		protected double[] compute() {
+			if (to - from > SLICE) {
+				int middle = (from + to) >>> 1;
+				Gradient left = new Gradient(w0, w1, w2, from, middle);
+				left.fork();
+				double[] right = new Gradient(w0, w1, w2, middle, to).compute();
+				double[] sum = left.join();
+				for (int i = 0; i < sum.length; i++) {
+					sum[i] += right[i];
+				}
+				return sum;
+			}
+			double loss = 0, g0 = 0, g1 = 0, g2 = 0;
+			for (int i = from; i < to; i++) {
+				double eval = w0 * material[i] + w1 * advancement[i] + w2 * mobility[i];
+				double p = 1 / (1 + Math.exp(-scale * eval));
+				p = Math.min(1 - 1e-12, Math.max(1e-12, p));
+				double r = results[i] * 0.5;
+				loss -= r * Math.log(p) + (1 - r) * Math.log(1 - p);
+				double d = (p - r) * scale;
+				g0 += d * material[i];
+				g1 += d * advancement[i];
+				g2 += d * mobility[i];
+			}
+			return new double[] {loss, g0, g1, g2};
+		}
+	}
+
+	/**
+	 * Finds the mean loss and its gradient.
+	 * @param weights The material, advancement and mobility weights.
+	 * @return The mean loss followed by the mean gradient of each weight.
+	 */
+	double[] gradient(double[] weights) {
+		double[] sum = pool.invoke(new Gradient(weights[0], weights[1], weights[2], 0, size));
+		for (int i = 0; i < sum.length; i++) {
+			sum[i] /= Math.max(1, size);
+		}
+		return sum;
+	}
+
+	/**
+	 * Fits the scale of the sigmoid to fixed weights by golden section search on its logarithm.
+	 * @param weights The material, advancement and mobility weights.
+	 * @return The mean loss at the fitted scale.
+	 */
+	double fitScale(double[] weights) {
+		double ratio = (Math.sqrt(5) - 1) / 2;
+		double low = Math.log(1e-5);
+		double high = Math.log(1);
+		for (int i = 0; i < 60; i++) {
+			double a = high - ratio * (high - low);
+			double b = low + ratio * (high - low);
+			scale = Math.exp(a);
+			double lossA = gradient(weights)[0];
+			scale = Math.exp(b);
+			double lossB = gradient(weights)[0];
+			if (lossA < lossB) {
+				high = b;
+			} else {
+				low = a;
+			}
+		}
+		scale = Math.exp((low + high) / 2);
+		return gradient(weights)[0];
+	}
+
+	/**
+	 * Tunes the weights with the Adam optimiser.
+	 * @param start         The starting weights, which also fix the scale of the sigmoid.
+	 * @param iterations    The number of gradient steps.
+	 * @param progress      If the loss is printed as the tuning goes.
+	 * @return The tuned weights, rounded.
+	 */
+	public EvaluationWeights tune(EvaluationWeights start, int iterations, boolean progress) {
+		double[] weights = {start.material, start.advancement, start.mobility};
+		double startLoss = fitScale(weights);
+		if (progress) {
+			System.out.printf("%d positions, scale %.6f, loss %.6f%n", size, scale, startLoss);
+		}
+		double[] m = new double[3];
+		double[] v = new double[3];
+		double beta1 = 0.9;
+		double beta2 = 0.999;
+		for (int t = 1; t <= iterations; t++) {
+			double[] g = gradient(weights);
+			for (int i = 0; i < 3; i++) {
+				m[i] = beta1 * m[i] + (1 - beta1) * g[i + 1];
+				v[i] = beta2 * v[i] + (1 - beta2) * g[i + 1] * g[i + 1];
+				double mHat = m[i] / (1 - Math.pow(beta1, t));
+				double vHat = v[i] / (1 - Math.pow(beta2, t));
+				weights[i] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + 1e-12);
+			}
+			if (progress && (t % 100 == 0 || t == iterations)) {
+				System.out.printf("iteration %d, loss %.6f, weights %.2f %.2f %.2f%n",
+						t, g[0], weights[0], weights[1], weights[2]);
+			}
+		}
+		return new EvaluationWeights((int) Math.round(weights[0]), (int) Math.round(weights[1]),
+				(int) Math.round(weights[2]));
+	}
+
+	/**
+	 * Finds the mean loss of some weights at the fitted scale.
+	 * @param weights The weights.
+	 * @return The mean loss.
+	 */
+	public double loss(EvaluationWeights weights) {
+		return gradient(new double[] {weights.material, weights.advancement, weights.mobility})[0];
+	}
+
+	/**
+	 * Records self-play games of the alpha-beta engine to a corpus file.
+	 * Each game starts with random moves so the games differ.
+	 * @param corpus    The corpus file, which is appended to.
+	 * @param games     The number of games.
+	 * @param threads   The number of games played at once.
+	 * @param seed      The seed of the random moves.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void generate(Path corpus, int games, int threads, long seed) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(corpus, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16))) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				executor.execute(() -> {
+					AlphaBetaSearch search = new AlphaBetaSearch(new BatchEvaluator(EvaluationWeights.defaults()),
+							AnalysisCache.inMemory(1 << 12));
+					Random random = new Random(seed + thread);
+					int[] moves = new int[Bitboards.MAX_MOVES];
+					int[] xs = new int[AlphaBetaSearch.MAX_PLY * 2];
+					int[] os = new int[xs.length];
+					for (int game = thread; game < games; game += threads) {
+						int plies = playGame(search, random, moves, xs, os);
+						boolean xWon = plies % 2 == 1;		//the side to move after the last ply has lost
+						synchronized (out) {
+							try {
+								for (int i = 0; i < plies; i++) {
+									out.writeInt(xs[i]);
+									out.writeInt(os[i]);
+									out.writeByte(xWon ? 2 : 0);
+								}
+							}
+							catch (IOException e) {
+								System.err.println("Could not write corpus - " + e.getMessage());
+								return;
+							}
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Plays one self-play game.
+	 * @param search    The engine.
+	 * @param random    The source of random moves.
+	 * @param moves     Scratch array for the moves.
+	 * @param xs        Receives the X mask after each ply.
+	 * @param os        Receives the O mask after each ply.
+	 * @return The number of plies played.
+	 */
+	private static int playGame(AlphaBetaSearch search, Random random, int[] moves, int[] xs, int[] os) {
+		int x = Bitboards.START_X;
+		int o = Bitboards.START_O;
+		boolean xToMove = true;
+		int plies = 0;
+		while (true) {
+			int count = Bitboards.generateMoves(x, o, xToMove, moves);
+			if (count == 0) {
+				return plies;
+			}
+			int move = plies < RANDOM_PLIES ? moves[random.nextInt(count)]
+					: search.search(x, o, xToMove, SELF_PLAY_DEPTH).getBestMove();
+			if (xToMove) {
+				x = Bitboards.moveMover(x, move);
+				o = Bitboards.moveOpponent(o, move);
+			} else {
+				o = Bitboards.moveMover(o, move);
+				x = Bitboards.moveOpponent(x, move);
+			}
+			xToMove = ! xToMove;
+			xs[plies] = x;
+			os[plies] = o;
+			plies++;
+		}
+	}
+
+	/**
+	 * Main method to record games or tune weights.
+	 * @param args	generate CORPUS [GAMES], or tune CORPUS WEIGHTS [ITERATIONS].
+	 */
+	public static void main(String[] args) {
+		try {
+			if (args.length >= 2 && args[0].equals("generate")) {
+				int games = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+				long start = System.nanoTime();
+				generate(Paths.get(args[1]), games, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+				System.out.println(games + " games recorded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+			} else if (args.length >= 3 && args[0].equals("tune")) {
+				int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+				long start = System.nanoTime();
+				EvaluationTuner tuner = load(Paths.get(args[1]));
+				EvaluationWeights tuned = tuner.tune(EvaluationWeights.defaults(), iterations, true);
+				System.out.printf("default loss %.6f, tuned loss %.6f%n",
+						tuner.loss(EvaluationWeights.defaults()), tuner.loss(tuned));
+				tuned.save(Paths.get(args[2]), "tuned on " + tuner.size() + " positions");
+				System.out.println(tuned + " written to " + args[2] + " in "
+						+ (System.nanoTime() - start) / 1_000_000 + " ms");
+			} else {
+				System.err.println("Usage: EvaluationTuner generate CORPUS [GAMES]");
+				System.err.println("       EvaluationTuner tune CORPUS WEIGHTS [ITERATIONS]");
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Tuning failed - " + e.getMessage());
+		}
+	}
+}
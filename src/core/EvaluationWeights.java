@@ -0,0 +1,107 @@
+package core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * EvaluationWeights contains the weights of each term of the position evaluation
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-03
+ */
+public class EvaluationWeights {
+
+	/** The value of one checker. */
+	public final int material;
+
+	/** The value of moving one checker one row toward the far side. */
+	public final int advancement;
+
+	/** The value of one available move or jump. */
+	public final int mobility;
+
+
+	/**
+	 * Constructor
+	 * @param material      The value of one checker.
+	 * @param advancement   The value of one row of advancement.
+	 * @param mobility      The value of one available move.
+	 */
+	public EvaluationWeights(int material, int advancement, int mobility) {
+		this.material = material;
+		this.advancement = advancement;
+		this.mobility = mobility;
+	}
+
+	/**
+	 * Gets the default weights.
+	 * @return The default weights.
+	 */
+	public static EvaluationWeights defaults() {
+		return new EvaluationWeights(100, 3, 4);
+	}
+
+	/**
+	 * Reads weights from a file written by save().
+	 * @param path The file.
+	 * @return The weights.
+	 * @throws IOException if the file cannot be read or is missing a weight.
+	 */
+	public static EvaluationWeights load(Path path) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(path)) {
+			properties.load(reader);
+		}
+		return new EvaluationWeights(read(properties, "material"), read(properties, "advancement"),
+				read(properties, "mobility"));
+	}
+
+	/**
+	 * Reads one weight.
+	 * @param properties    The weights read from a file.
+	 * @param name          The name of the weight.
+	 * @return The weight.
+	 * @throws IOException if the weight is missing or not a number.
+	 */
+	private static int read(Properties properties, String name) throws IOException {
+		String value = properties.getProperty(name);
+		if (value == null) {
+			throw new IOException("missing weight: " + name);
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e) {
+			throw new IOException("weight is not a number: " + name + "=" + value);
+		}
+	}
+
+	/**
+	 * Writes the weights to a file which load() can read.
+	 * @param path      The file.
+	 * @param comment   A comment written at the top of the file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void save(Path path, String comment) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("material", Integer.toString(material));
+		properties.setProperty("advancement", Integer.toString(advancement));
+		properties.setProperty("mobility", Integer.toString(mobility));
+		try (Writer writer = Files.newBufferedWriter(path)) {
+			properties.store(writer, comment);
+		}
+	}
+
+	/**
+	 * Creates a String representation of the weights.
+	 * @return A String representation of the weights.
+	 */
+	@Override
+	public String toString() {
+		return "material=" + material + " advancement=" + advancement + " mobility=" + mobility;
+	}
+}
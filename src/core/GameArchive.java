@@ -0,0 +1,754 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * GameArchive stores games of the 8x8 board as move sequences, with an index
+ * from the hash of every position reached to the games and plies reaching it
+ *  contains a main method to record, index and query archives
+ *
+ * The archive file is a header followed by each game:
+ *   [plies:2][result:1][move:2]...
+ * with moves in the 2 byte code of SpectatorHub and results coded as in the
+ * tuning corpus, 2 for an X win, 1 for a draw and 0 for an O win.
+ *
+ * The index file is built from an archive in one parallel bulk load: every
+ * game is replayed to hash each position, then the entries are sorted by
+ * hash.  It holds a header, the offset of each game in the archive, a fan-out
+ * table of where each 16 bit hash prefix starts and the sorted entries:
+ *   [hash:8][game:4][ply:2][unused:1][result:1]
+ * The index is memory-mapped, so a lookup is a jump to the prefix and a
+ * binary search of the few entries sharing it.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-28
+ */
+public class GameArchive implements Closeable {
+
+	/** Result of a game won by X */
+	public static final int X_WON = 2;
+
+	/** Result of a drawn game */
+	public static final int DRAW = 1;
+
+	/** Result of a game won by O */
+	public static final int O_WON = 0;
+
+	/** Identifies an archive file */
+	private static final long ARCHIVE_MAGIC = 0x43484B4152434856L;
+
+	/** Identifies an index file */
+	private static final long INDEX_MAGIC = 0x43484B494E444558L;
+
+	/** The version of both file formats */
+	private static final int VERSION = 1;
+
+	/** The size of each file header in bytes */
+	private static final int HEADER = 64;
+
+	/** The number of hash bits of the fan-out table */
+	private static final int FANOUT_BITS = 16;
+
+	/** The size of an index entry in bytes */
+	private static final int ENTRY = 16;
+
+	/** The size of each mapped part of the index, a multiple of ENTRY */
+	private static final int SEGMENT = 1 << 30;
+
+	/** The most plies a stored game can have */
+	public static final int MAX_PLIES = 0xFFFF;
+
+	/** The archive file, read when a game is loaded */
+	private final FileChannel archive;
+
+	/** The offset of each game in the archive */
+	private final long[] offsets;
+
+	/** Where the entries of each hash prefix start, with the number of entries at the end */
+	private final long[] fanout;
+
+	/** The index entries, mapped in parts of SEGMENT bytes */
+	private final MappedByteBuffer[] segments;
+
+
+	/**
+	 * Hit is one position of a stored game matching a lookup.
+	 */
+	public static final class Hit {
+
+		/** The game */
+		private final int game;
+
+		/** The number of plies played to reach the position */
+		private final int ply;
+
+		/** The result of the game */
+		private final int result;
+
+		/**
+		 * Constructor
+		 * @param game      The game.
+		 * @param ply       The number of plies played.
+		 * @param result    The result of the game.
+		 */
+		Hit(int game, int ply, int result) {
+			this.game = game;
+			this.ply = ply;
+			this.result = result;
+		}
+
+		/**
+		 * Gets the game, numbered from 0 in the order it was added.
+		 * @return The game.
+		 */
+		public int getGame() {
+			return game;
+		}
+
+		/**
+		 * Gets the number of plies played to reach the position.
+		 * @return The ply.
+		 */
+		public int getPly() {
+			return ply;
+		}
+
+		/**
+		 * Gets the result of the game.
+		 * @return X_WON, DRAW or O_WON.
+		 */
+		public int getResult() {
+			return result;
+		}
+
+		/**
+		 * Creates a String representation of the hit.
+		 * @return The game, ply and result.
+		 */
+		@Override
+		public String toString() {
+			return "game " + game + " ply " + ply + (result == X_WON ? " X won" : result == O_WON ? " O won" : " draw");
+		}
+	}
+
+	/**
+	 * Writer appends games to an archive file.
+	 */
+	public static class Writer implements Closeable {
+
+		/** The file */
+		private final FileChannel channel;
+
+		/** The stream writing games after the existing ones */
+		private final DataOutputStream out;
+
+		/** The number of games in the file */
+		private int games;
+
+		/** Scratch array for the legal moves of each position */
+		private final int[] legal = new int[Bitboards.MAX_MOVES];
+
+		/**
+		 * Constructor, opens an archive file, creating it if it does not exist.
+		 * @param path The file.
+		 * @throws IOException if the file cannot be opened or is not an archive.
+		 */
+		public Writer(Path path) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			if (channel.size() < HEADER) {
+				header.putLong(0, ARCHIVE_MAGIC);
+				header.putInt(8, VERSION);
+				header.putInt(12, 0);
+				channel.write(header, 0);
+			} else {
+				channel.read(header, 0);
+				if (header.getLong(0) != ARCHIVE_MAGIC || header.getInt(8) != VERSION) {
+					channel.close();
+					throw new IOException("not a game archive: " + path);
+				}
+				games = header.getInt(12);
+			}
+			channel.position(channel.size());
+			out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+		}
+
+		/**
+		 * Adds a game played from the starting position.
+		 * @param moves     The moves, encoded as in Bitboards.
+		 * @param plies     The number of moves.
+		 * @param result    X_WON, DRAW or O_WON.
+		 * @return The number of the game.
+		 * @throws IllegalArgumentException if a move is illegal or the game is too long.
+		 * @throws IOException if the game cannot be written.
+		 */
+		public int add(int[] moves, int plies, int result) throws IllegalArgumentException, IOException {
+			if (plies > MAX_PLIES || result < O_WON || result > X_WON) {
+				throw new IllegalArgumentException("bad game: " + plies + " plies, result " + result);
+			}
+			int x = Bitboards.START_X;
+			int o = Bitboards.START_O;
+			boolean xToMove = true;
+			for (int i = 0; i < plies; i++) {
+				int move = moves[i];
+				int count = Bitboards.generateMoves(x, o, xToMove, legal);
+				if (! contains(legal, count, move)) {
+					throw new IllegalArgumentException("illegal move at ply " + i + ": " + Bitboards.toNotation(move));
+				}
+				if (xToMove) {
+					x = Bitboards.moveMover(x, move);
+					o = Bitboards.moveOpponent(o, move);
+				} else {
+					o = Bitboards.moveMover(o, move);
+					x = Bitboards.moveOpponent(x, move);
+				}
+				xToMove = ! xToMove;
+			}
+			out.writeShort(plies);
+			out.writeByte(result);
+			for (int i = 0; i < plies; i++) {
+				out.writeShort(SpectatorHub.encodeMove(moves[i]));
+			}
+			return games++;
+		}
+
+		/**
+		 * Gets the number of games in the file.
+		 * @return The number of games.
+		 */
+		public int getGames() {
+			return games;
+		}
+
+		/**
+		 * Writes the remaining games and the game count and closes the file.
+		 * @throws IOException if the file cannot be written.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				out.flush();
+				ByteBuffer count = ByteBuffer.allocate(4);
+				count.putInt(0, games);
+				channel.write(count, 12);
+			}
+			finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param archive       The archive file.
+	 * @param offsets       The offset of each game.
+	 * @param fanout        Where the entries of each hash prefix start.
+	 * @param segments      The mapped entries.
+	 */
+	private GameArchive(FileChannel archive, long[] offsets, long[] fanout, MappedByteBuffer[] segments) {
+		this.archive = archive;
+		this.offsets = offsets;
+		this.fanout = fanout;
+		this.segments = segments;
+	}
+
+	/**
+	 * Opens an archive and its index for lookups.
+	 * @param archivePath   The archive file.
+	 * @param indexPath     The index file built from it.
+	 * @return The archive.
+	 * @throws IOException if either file cannot be read or the index does not match the archive.
+	 */
+	public static GameArchive open(Path archivePath, Path indexPath) throws IOException {
+		FileChannel archive = FileChannel.open(archivePath, StandardOpenOption.READ);
+		try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			archive.read(header, 0);
+			int games = header.getInt(12);
+			header.clear();
+			index.read(header, 0);
+			if (header.getLong(0) != INDEX_MAGIC || header.getInt(8) != VERSION) {
+				throw new IOException("not a game index: " + indexPath);
+			}
+			if (header.getInt(12) != games || header.getLong(16) != archive.size()) {
+				throw new IOException("index does not match the archive, rebuild it: " + indexPath);
+			}
+			long entries = header.getLong(24);
+			ByteBuffer tables = ByteBuffer.allocate(8 * (games + (1 << FANOUT_BITS) + 1));
+			readFully(index, tables, HEADER);
+			long[] offsets = new long[games];
+			tables.asLongBuffer().get(offsets);
+			long[] fanout = new long[(1 << FANOUT_BITS) + 1];
+			tables.position(8 * games);
+			tables.asLongBuffer().get(fanout);
+			long entriesStart = HEADER + (long) tables.capacity();
+			long bytes = entries * ENTRY;
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((bytes + SEGMENT - 1) / SEGMENT)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i * SEGMENT;
+				segments[i] = index.map(FileChannel.MapMode.READ_ONLY, entriesStart + start, Math.min(SEGMENT, bytes - start));
+			}
+			return new GameArchive(archive, offsets, fanout, segments);
+		}
+		catch (IOException e) {
+			archive.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Finds every stored game reaching a position.
+	 * @param hash The Zobrist hash of the position.
+	 * @return The games and plies reaching it, ordered by game.
+	 */
+	public List<Hit> find(long hash) {
+		List<Hit> hits = new ArrayList<>();
+		for (long i = first(hash), end = fanout[bucket(hash) + 1]; i < end && key(i) == hash; i++) {
+			long value = value(i);
+			hits.add(new Hit((int) (value >>> 32), (int) (value >>> 16) & 0xFFFF, (int) value & 0xFF));
+		}
+		return hits;
+	}
+
+	/**
+	 * Counts how the stored games reaching a position ended, without building the hits.
+	 * @param hash The Zobrist hash of the position.
+	 * @return The number of games O won, drawn and X won, indexed by result.
+	 */
+	public long[] outcomes(long hash) {
+		long[] outcomes = new long[3];
+		for (long i = first(hash), end = fanout[bucket(hash) + 1]; i < end && key(i) == hash; i++) {
+			outcomes[(int) value(i) & 0xFF]++;
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Finds the first entry with a hash, or where it would be.
+	 * @param hash The hash.
+	 * @return The entry.
+	 */
+	private long first(long hash) {
+		long low = fanout[bucket(hash)];
+		long high = fanout[bucket(hash) + 1];
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(key(middle), hash) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Gets the hash of an entry.
+	 * @param entry The entry.
+	 * @return The hash.
+	 */
+	private long key(long entry) {
+		long offset = entry * ENTRY;
+		return segments[(int) (offset / SEGMENT)].getLong((int) (offset % SEGMENT));
+	}
+
+	/**
+	 * Gets the game, ply and result of an entry.
+	 * @param entry The entry.
+	 * @return The game in the high 32 bits, then the ply, 8 unused bits and the result.
+	 */
+	private long value(long entry) {
+		long offset = entry * ENTRY + 8;
+		return segments[(int) (offset / SEGMENT)].getLong((int) (offset % SEGMENT));
+	}
+
+	/**
+	 * Gets the fan-out bucket of a hash.
+	 * @param hash The hash.
+	 * @return The bucket.
+	 */
+	private static int bucket(long hash) {
+		return (int) (hash >>> (64 - FANOUT_BITS));
+	}
+
+	/**
+	 * Reads the moves of a stored game.
+	 * @param game The game.
+	 * @return The moves, encoded as in Bitboards.
+	 * @throws IOException if the archive cannot be read.
+	 */
+	public int[] readGame(int game) throws IOException {
+		ByteBuffer head = ByteBuffer.allocate(3);
+		readFully(archive, head, offsets[game]);
+		int plies = head.getShort(0) & 0xFFFF;
+		ByteBuffer codes = ByteBuffer.allocate(2 * plies);
+		readFully(archive, codes, offsets[game] + 3);
+		int[] moves = new int[plies];
+		for (int i = 0; i < plies; i++) {
+			moves[i] = SpectatorHub.decodeMove(codes.getShort(2 * i) & 0xFFFF);
+		}
+		return moves;
+	}
+
+	/**
+	 * Reads a stored game as a history, so any of its positions can be restored without replaying the whole game.
+	 * @param game The game.
+	 * @return The history.
+	 * @throws IOException if the archive cannot be read.
+	 */
+	public GameHistory readHistory(int game) throws IOException {
+		return GameHistory.of(readGame(game));
+	}
+
+	/**
+	 * Gets the number of games in the archive.
+	 * @return The number of games.
+	 */
+	public int getGames() {
+		return offsets.length;
+	}
+
+	/**
+	 * Closes the archive and releases the index.
+	 * @throws IOException if the archive cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		archive.close();
+	}
+
+	/**
+	 * Builds the index of an archive, replaying and sorting in parallel.
+	 * @param archivePath   The archive file.
+	 * @param indexPath     The index file, replaced if it exists.
+	 * @return The number of positions indexed.
+	 * @throws IOException if the archive cannot be read or the index written.
+	 */
+	public static long buildIndex(Path archivePath, Path indexPath) throws IOException {
+		ByteBuffer data;
+		int games;
+		try (FileChannel archive = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+			if (archive.size() > Integer.MAX_VALUE) {
+				throw new IOException("archive too large to index in one pass: " + archivePath);
+			}
+			data = archive.map(FileChannel.MapMode.READ_ONLY, 0, archive.size());
+			if (data.limit() < HEADER || data.getLong(0) != ARCHIVE_MAGIC || data.getInt(8) != VERSION) {
+				throw new IOException("not a game archive: " + archivePath);
+			}
+			games = data.getInt(12);
+		}
+
+		//find each game, one entry for each position including the first
+		long[] offsets = new long[games];
+		long position = HEADER;
+		long entries = 0;
+		for (int game = 0; game < games; game++) {
+			offsets[game] = position;
+			int plies = data.getShort((int) position) & 0xFFFF;
+			position += 3 + 2L * plies;
+			entries += plies + 1;
+			if (entries > Integer.MAX_VALUE - 8 || position > data.limit()) {
+				throw new IOException("archive is truncated or too large to index: " + archivePath);
+			}
+		}
+
+		//replay every game in parallel to count the entries of each fan-out bucket
+		int buckets = 1 << FANOUT_BITS;
+		AtomicIntegerArray counts = new AtomicIntegerArray(buckets);
+		IntStream.range(0, games).parallel().forEach(game ->
+				replay(data, offsets[game], game, (hash, value) -> counts.incrementAndGet(bucket(hash))));
+		long[] fanout = new long[buckets + 1];
+		AtomicIntegerArray next = new AtomicIntegerArray(buckets);
+		for (int i = 0; i < buckets; i++) {
+			fanout[i + 1] = fanout[i] + counts.get(i);
+			next.set(i, (int) fanout[i]);
+		}
+
+		//replay again to place each entry in its bucket, then sort the buckets in parallel
+		long[] keys = new long[(int) entries];
+		long[] values = new long[(int) entries];
+		IntStream.range(0, games).parallel().forEach(game -> replay(data, offsets[game], game, (hash, value) -> {
+			int slot = next.getAndIncrement(bucket(hash));
+			keys[slot] = hash;
+			values[slot] = value;
+		}));
+		IntStream.range(0, buckets).parallel().forEach(bucket ->
+				sort(keys, values, (int) fanout[bucket], (int) fanout[bucket + 1]));
+
+		//write the header, tables and entries
+		try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putLong(0, INDEX_MAGIC);
+			header.putInt(8, VERSION);
+			header.putInt(12, games);
+			header.putLong(16, data.limit());
+			header.putLong(24, entries);
+			writeFully(index, header);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+			for (long offset : offsets) {
+				buffer = put(index, buffer, offset);
+			}
+			for (long start : fanout) {
+				buffer = put(index, buffer, start);
+			}
+			for (int i = 0; i < keys.length; i++) {
+				buffer = put(index, buffer, keys[i]);
+				buffer = put(index, buffer, values[i]);
+			}
+			buffer.flip();
+			writeFully(index, buffer);
+		}
+		return entries;
+	}
+
+	/**
+	 * EntryConsumer receives the index entries of a game.
+	 */
+	private interface EntryConsumer {
+
+		/**
+		 * Receives one entry.
+		 * @param hash  The hash of the position.
+		 * @param value The game in the high 32 bits, then the ply, 8 unused bits and the result.
+		 */
+		void accept(long hash, long value);
+	}
+
+	/**
+	 * Replays a stored game, giving the entry of each position reached.
+	 * @param data      The mapped archive.
+	 * @param offset    The offset of the game.
+	 * @param game      The number of the game.
+	 * @param consumer  Receives each entry.
+	 */
+	private static void replay(ByteBuffer data, long offset, int game, EntryConsumer consumer) {
+		int start = (int) offset;
+		int plies = data.getShort(start) & 0xFFFF;
+		long result = data.get(start + 2) & 0xFF;
+		long hash = Zobrist.hash(Bitboards.START_X, Bitboards.START_O, true);
+		boolean xToMove = true;
+		for (int ply = 0; ; ply++) {
+			consumer.accept(hash, (long) game << 32 | (long) ply << 16 | result);
+			if (ply == plies) break;
+			hash = Zobrist.play(hash, SpectatorHub.decodeMove(data.getShort(start + 3 + 2 * ply) & 0xFFFF), xToMove);
+			xToMove = ! xToMove;
+		}
+	}
+
+	/**
+	 * Sorts part of the entries by hash and then by game and ply, moving each value with its hash.
+	 * Buckets are small, so an insertion sort is used for short runs and a quicksort otherwise.
+	 * @param keys      The hashes.
+	 * @param values    The values.
+	 * @param from      The first entry.
+	 * @param to        The entry after the last.
+	 */
+	private static void sort(long[] keys, long[] values, int from, int to) {
+		while (to - from > 16) {
+			int middle = (from + to) >>> 1;
+			long pivotKey = keys[middle];
+			long pivotValue = values[middle];
+			int i = from;
+			int j = to - 1;
+			while (i <= j) {
+				while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) i++;
+				while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) j--;
+				if (i <= j) {
+					swap(keys, values, i++, j--);
+				}
+			}
+			if (j - from < to - i) {		//recurse into the smaller part
+				sort(keys, values, from, j + 1);
+				from = i;
+			} else {
+				sort(keys, values, i, to);
+				to = j + 1;
+			}
+		}
+		for (int i = from + 1; i < to; i++) {
+			for (int j = i; j > from && compare(keys[j - 1], values[j - 1], keys[j], values[j]) > 0; j--) {
+				swap(keys, values, j - 1, j);
+			}
+		}
+	}
+
+	/**
+	 * Compares two entries by hash, then by value.
+	 * @param key1      The hash of the first entry.
+	 * @param value1    The value of the first entry.
+	 * @param key2      The hash of the second entry.
+	 * @param value2    The value of the second entry.
+	 * @return Negative, zero or positive as the first entry sorts before, with or after the second.
+	 */
+	private static int compare(long key1, long value1, long key2, long value2) {
+		int order = Long.compareUnsigned(key1, key2);
+		return order != 0 ? order : Long.compare(value1, value2);
+	}
+
+	/**
+	 * Swaps two entries.
+	 * @param keys      The hashes.
+	 * @param values    The values.
+	 * @param i         The first entry.
+	 * @param j         The second entry.
+	 */
+	private static void swap(long[] keys, long[] values, int i, int j) {
+		long key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		long value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+
+	/**
+	 * Adds a long to a write buffer, writing the buffer out when it is full.
+	 * @param channel   The file.
+	 * @param buffer    The buffer.
+	 * @param value     The value.
+	 * @return The buffer.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static ByteBuffer put(FileChannel channel, ByteBuffer buffer, long value) throws IOException {
+		if (buffer.remaining() < 8) {
+			buffer.flip();
+			writeFully(channel, buffer);
+			buffer.clear();
+		}
+		return buffer.putLong(value);
+	}
+
+	/**
+	 * Writes all of a buffer at the channel's position.
+	 * @param channel   The file.
+	 * @param buffer    The buffer.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Reads a buffer full from a position.
+	 * @param channel   The file.
+	 * @param buffer    The buffer.
+	 * @param position  The position.
+	 * @throws IOException if the file ends first or cannot be read.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("unexpected end of file");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Main method to record random games, index an archive or look up a position.
+	 * @param args	record ARCHIVE GAMES, index ARCHIVE INDEX,
+	 * 		or query ARCHIVE INDEX POSITION with the position in the text form of PositionCodec.
+	 */
+	public static void main(String[] args) {
+		try {
+			if (args.length >= 3 && args[0].equals("record")) {
+				int games = Integer.parseInt(args[2]);
+				long start = System.nanoTime();
+				record(Paths.get(args[1]), games, new Random(System.nanoTime()));
+				System.out.println(games + " games recorded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+			} else if (args.length >= 3 && args[0].equals("index")) {
+				long start = System.nanoTime();
+				long entries = buildIndex(Paths.get(args[1]), Paths.get(args[2]));
+				System.out.println(entries + " positions indexed in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+			} else if (args.length >= 4 && args[0].equals("query")) {
+				PositionCodec.Position position = PositionCodec.fromText(args[3], Variant.ENGLISH);
+				long hash = Zobrist.hash(position.x, position.o, position.xToMove);
+				try (GameArchive archive = open(Paths.get(args[1]), Paths.get(args[2]))) {
+					long start = System.nanoTime();
+					long[] outcomes = archive.outcomes(hash);
+					long micros = (System.nanoTime() - start) / 1000;
+					System.out.println("X won " + outcomes[X_WON] + ", O won " + outcomes[O_WON] + ", drawn "
+							+ outcomes[DRAW] + " (" + micros + " us)");
+					List<Hit> hits = archive.find(hash);
+					for (Hit hit : hits.subList(0, Math.min(10, hits.size()))) {
+						System.out.println(hit);
+					}
+				}
+			} else {
+				System.err.println("Usage: GameArchive record ARCHIVE GAMES");
+				System.err.println("       GameArchive index ARCHIVE INDEX");
+				System.err.println("       GameArchive query ARCHIVE INDEX POSITION");
+			}
+		}
+		catch (IOException | IllegalArgumentException e) {
+			System.err.println("Archive failed - " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Appends games of random legal moves to an archive, for trying out the index.
+	 * @param path      The archive file.
+	 * @param games     The number of games.
+	 * @param random    The source of moves.
+	 * @throws IOException if the archive cannot be written.
+	 */
+	private static void record(Path path, int games, Random random) throws IOException {
+		int[] legal = new int[Bitboards.MAX_MOVES];
+		int[] moves = new int[AlphaBetaSearch.MAX_PLY * 2];
+		try (Writer writer = new Writer(path)) {
+			for (int game = 0; game < games; game++) {
+				int x = Bitboards.START_X;
+				int o = Bitboards.START_O;
+				boolean xToMove = true;
+				int plies = 0;
+				while (true) {
+					int count = Bitboards.generateMoves(x, o, xToMove, legal);
+					if (count == 0) break;
+					int move = legal[random.nextInt(count)];
+					moves[plies++] = move;
+					if (xToMove) {
+						x = Bitboards.moveMover(x, move);
+						o = Bitboards.moveOpponent(o, move);
+					} else {
+						o = Bitboards.moveMover(o, move);
+						x = Bitboards.moveOpponent(x, move);
+					}
+					xToMove = ! xToMove;
+				}
+				writer.add(moves, plies, xToMove ? O_WON : X_WON);		//the side left without a move has lost
+			}
+		}
+	}
+
+	/**
+	 * Checks if a move is in a list.
+	 * @param moves The list.
+	 * @param count The number of moves in the list.
+	 * @param move  The move.
+	 * @return If the move is in the list.
+	 */
+	private static boolean contains(int[] moves, int count, int move) {
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == move) return true;
+		}
+		return false;
+	}
+}
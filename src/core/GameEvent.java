@@ -0,0 +1,195 @@
+package core;
+
+/**
+ * GameEvent is one change to a game, as published by GameEventPublisher
+ *
+ * Events are immutable so the same event can be handed to every subscriber.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-26
+ */
+public final class GameEvent {
+
+	/**
+	 * Type is the kind of change.
+	 */
+	public enum Type {
+		/** A checker moved without capturing */
+		MOVE,
+		/** A checker jumped and captured a piece */
+		CAPTURE,
+		/** The turn passed to the other side */
+		TURN,
+		/** The board was reset to the starting position */
+		RESET,
+		/** The board was set to an arbitrary position */
+		POSITION,
+		/** The game ended */
+		GAME_OVER
+	}
+
+	/**
+	 * Result is how a game ended.
+	 */
+	public enum Result {
+		/** X won */
+		X_WON,
+		/** O won */
+		O_WON,
+		/** Neither side won */
+		DRAW
+	}
+
+	/** The kind of change */
+	private final Type type;
+
+	/** The number of the event in the game, counting from 0 */
+	private final long sequence;
+
+	/** The starting row of a move, 0 for other events */
+	private final int fromRow;
+
+	/** The starting column of a move, 0 for other events */
+	private final int fromColumn;
+
+	/** The finishing row of a move, 0 for other events */
+	private final int toRow;
+
+	/** The finishing column of a move, 0 for other events */
+	private final int toColumn;
+
+	/** If X is to move after a turn switch */
+	private final boolean xToMove;
+
+	/** How the game ended, null unless the game is over */
+	private final Result result;
+
+
+	/**
+	 * Constructor
+	 * @param type          The kind of change.
+	 * @param sequence      The number of the event in the game.
+	 * @param fromRow       The starting row of a move.
+	 * @param fromColumn    The starting column of a move.
+	 * @param toRow         The finishing row of a move.
+	 * @param toColumn      The finishing column of a move.
+	 * @param xToMove       If X is to move.
+	 * @param result        How the game ended.
+	 */
+	private GameEvent(Type type, long sequence, int fromRow, int fromColumn, int toRow, int toColumn,
+			boolean xToMove, Result result) {
+		this.type = type;
+		this.sequence = sequence;
+		this.fromRow = fromRow;
+		this.fromColumn = fromColumn;
+		this.toRow = toRow;
+		this.toColumn = toColumn;
+		this.xToMove = xToMove;
+		this.result = result;
+	}
+
+	/**
+	 * Creates the event of a move or capture.
+	 * @param sequence      The number of the event.
+	 * @param fromRow       The starting row.
+	 * @param fromColumn    The starting column.
+	 * @param toRow         The finishing row.
+	 * @param toColumn      The finishing column.
+	 * @param captured      If the move captured a piece.
+	 * @return The event.
+	 */
+	static GameEvent move(long sequence, int fromRow, int fromColumn, int toRow, int toColumn, boolean captured) {
+		return new GameEvent(captured ? Type.CAPTURE : Type.MOVE, sequence, fromRow, fromColumn, toRow, toColumn,
+				false, null);
+	}
+
+	/**
+	 * Creates the event of a turn switch.
+	 * @param sequence  The number of the event.
+	 * @param xToMove   If X is now to move.
+	 * @return The event.
+	 */
+	static GameEvent turn(long sequence, boolean xToMove) {
+		return new GameEvent(Type.TURN, sequence, 0, 0, 0, 0, xToMove, null);
+	}
+
+	/**
+	 * Creates the event of a reset or a new position.
+	 * @param type      RESET or POSITION.
+	 * @param sequence  The number of the event.
+	 * @param xToMove   If X is to move.
+	 * @return The event.
+	 */
+	static GameEvent board(Type type, long sequence, boolean xToMove) {
+		return new GameEvent(type, sequence, 0, 0, 0, 0, xToMove, null);
+	}
+
+	/**
+	 * Creates the event of the end of the game.
+	 * @param sequence  The number of the event.
+	 * @param result    How the game ended.
+	 * @return The event.
+	 */
+	static GameEvent gameOver(long sequence, Result result) {
+		return new GameEvent(Type.GAME_OVER, sequence, 0, 0, 0, 0, false, result);
+	}
+
+	/**
+	 * Gets the kind of change.
+	 * @return The type.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the number of the event in the game, counting from 0.
+	 * A subscriber which sees a gap has had events dropped.
+	 * @return The sequence number.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Gets the coordinates of a move.
+	 * @return The starting row, starting column, finishing row and finishing column.
+	 */
+	public int[] getCoordinates() {
+		return new int[] {fromRow, fromColumn, toRow, toColumn};
+	}
+
+	/**
+	 * Checks if X is to move after a turn switch, reset or new position.
+	 * @return If X is to move.
+	 */
+	public boolean isXToMove() {
+		return xToMove;
+	}
+
+	/**
+	 * Gets how the game ended.
+	 * @return The result, null unless the type is GAME_OVER.
+	 */
+	public Result getResult() {
+		return result;
+	}
+
+	/**
+	 * Creates a String representation of the event.
+	 * @return The sequence number, the type and its details.
+	 */
+	@Override
+	public String toString() {
+		switch (type) {
+			case MOVE:
+			case CAPTURE:
+				return sequence + " " + type + " " + fromRow + (char) ('a' + fromColumn - 1)
+						+ "-" + toRow + (char) ('a' + toColumn - 1);
+			case GAME_OVER:
+				return sequence + " " + type + " " + result;
+			default:
+				return sequence + " " + type + " " + (xToMove ? "X" : "O") + " to move";
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GameEventPublisher publishes the changes to a CheckerBoard as a stream of
+ * GameEvents that any number of subscribers can read
+ *
+ * The publisher observes the board, so events are offered on the game thread,
+ * but it never waits: each subscriber has a bounded buffer, filled ahead of
+ * the subscriber's requests and drained on the executor.  When a subscriber's
+ * buffer is full the event is dropped for that subscriber only and counted,
+ * which it can detect from the gap in sequence numbers.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-26
+ */
+public class GameEventPublisher implements BoardObserver, AutoCloseable {
+
+	/** The default number of events buffered for each subscriber */
+	public static final int DEFAULT_BUFFER = 256;
+
+	/** The publisher delivering events */
+	private final SubmissionPublisher<GameEvent> publisher;
+
+	/** The board observed */
+	private final CheckerBoard board;
+
+	/** The number of the next event, written only by the game thread */
+	private long sequence;
+
+	/** The number of events dropped for full subscribers */
+	private final LongAdder dropped = new LongAdder();
+
+
+	/**
+	 * Constructor, starts observing the board.
+	 * @param board     The board to observe.
+	 * @param executor  The executor delivering events to subscribers.
+	 * @param buffer    The number of events buffered for each subscriber, rounded up to a power of two.
+	 */
+	public GameEventPublisher(CheckerBoard board, Executor executor, int buffer) {
+		this.board = board;
+		publisher = new SubmissionPublisher<>(executor, buffer);
+		board.addObserver(this);
+	}
+
+	/**
+	 * Constructor, delivers events on the common pool with the default buffer.
+	 * @param board The board to observe.
+	 */
+	public GameEventPublisher(CheckerBoard board) {
+		this(board, ForkJoinPool.commonPool(), DEFAULT_BUFFER);
+	}
+
+	/**
+	 * Adds a subscriber, who receives the events published after it subscribes.
+	 * @param subscriber The subscriber.
+	 */
+	public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+		publisher.subscribe(subscriber);
+	}
+
+	/**
+	 * Publishes a move or capture, called on the game thread.
+	 * @param fromRow       The starting row.
+	 * @param fromColumn    The starting column.
+	 * @param toRow         The finishing row.
+	 * @param toColumn      The finishing column.
+	 * @param captured      If the move captured a piece.
+	 */
+	@Override
+	public void pieceMoved(int fromRow, int fromColumn, int toRow, int toColumn, boolean captured) {
+		publish(GameEvent.move(sequence++, fromRow, fromColumn, toRow, toColumn, captured));
+	}
+
+	/**
+	 * Publishes a turn switch, called on the game thread.
+	 * @param xToMove If X is now the current player.
+	 */
+	@Override
+	public void turnSwitched(boolean xToMove) {
+		publish(GameEvent.turn(sequence++, xToMove));
+	}
+
+	/**
+	 * Publishes a reset, called on the game thread.
+	 */
+	@Override
+	public void boardReset() {
+		publish(GameEvent.board(GameEvent.Type.RESET, sequence++, true));
+	}
+
+	/**
+	 * Publishes a new position, called on the game thread.
+	 */
+	@Override
+	public void positionSet() {
+		publish(GameEvent.board(GameEvent.Type.POSITION, sequence++, board.getCurrentPlayer().isX()));
+	}
+
+	/**
+	 * Publishes the end of the game.
+	 * @param result How the game ended.
+	 */
+	public void gameOver(GameEvent.Result result) {
+		publish(GameEvent.gameOver(sequence++, result));
+	}
+
+	/**
+	 * Offers an event to every subscriber without waiting.
+	 * @param event The event.
+	 */
+	private void publish(GameEvent event) {
+		if (publisher.hasSubscribers()) {
+			publisher.offer(event, (subscriber, e) -> {
+				dropped.increment();
+				return false;		//do not retry, the game thread never waits
+			});
+		}
+	}
+
+	/**
+	 * Gets the number of events dropped because a subscriber's buffer was full.
+	 * @return The number of events dropped, counted once for each subscriber missing it.
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Gets the number of subscribers.
+	 * @return The number of subscribers.
+	 */
+	public int getSubscriberCount() {
+		return publisher.getNumberOfSubscribers();
+	}
+
+	/**
+	 * Stops observing the board and completes every subscriber once its buffer is delivered.
+	 */
+	@Override
+	public void close() {
+		board.removeObserver(this);
+		publisher.close();
+	}
+
+	/**
+	 * LineWriter is a subscriber that writes each event on its own line.
+	 */
+	public static class LineWriter implements Flow.Subscriber<GameEvent> {
+
+		/** The number of events requested at a time */
+		private static final int BATCH = 64;
+
+		/** The writer */
+		private final Writer writer;
+
+		/** The subscription, set when subscribed */
+		private Flow.Subscription subscription;
+
+		/** The number of events received since the last request */
+		private int received;
+
+		/** Completed once the writer is closed */
+		private final CompletableFuture<Void> closed = new CompletableFuture<>();
+
+		/**
+		 * Constructor
+		 * @param writer The writer, closed when the stream ends.
+		 */
+		public LineWriter(Writer writer) {
+			this.writer = writer;
+		}
+
+		/**
+		 * Requests the first batch of events.
+		 * @param subscription The subscription.
+		 */
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(BATCH);
+		}
+
+		/**
+		 * Writes an event and requests more once half a batch has been written.
+		 * @param event The event.
+		 */
+		@Override
+		public void onNext(GameEvent event) {
+			try {
+				writer.write(event.toString());
+				writer.write(System.lineSeparator());
+			}
+			catch (IOException e) {
+				subscription.cancel();
+				onError(e);
+				return;
+			}
+			if (++received == BATCH / 2) {
+				received = 0;
+				subscription.request(BATCH / 2);
+			}
+		}
+
+		/**
+		 * Reports the error and closes the writer.
+		 * @param throwable The error.
+		 */
+		@Override
+		public void onError(Throwable throwable) {
+			System.err.println("Event log failed - " + throwable.getMessage());
+			closeWriter();
+		}
+
+		/**
+		 * Closes the writer at the end of the stream.
+		 */
+		@Override
+		public void onComplete() {
+			closeWriter();
+		}
+
+		/**
+		 * Closes the writer.
+		 */
+		private void closeWriter() {
+			try {
+				writer.close();
+			}
+			catch (IOException e) {
+				System.err.println("Could not close event log - " + e.getMessage());
+			}
+			closed.complete(null);
+		}
+
+		/**
+		 * Gets a future completed once every event has been written and the writer closed.
+		 * @return The future.
+		 */
+		public CompletableFuture<Void> getClosed() {
+			return closed;
+		}
+	}
+}
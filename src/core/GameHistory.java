@@ -0,0 +1,380 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * GameHistory records the moves of an 8x8 game so any earlier position can be
+ * restored quickly, for replay viewers, takebacks and scrubbing through games
+ *  contains a main method to check and time seeking
+ *
+ * Each move is kept as the 2 byte code of SpectatorHub.  Every
+ * CHECKPOINT_INTERVAL plies the position is also kept in the binary form of
+ * PositionCodec, so restoring a ply unpacks the checkpoint at or before it
+ * and replays at most CHECKPOINT_INTERVAL - 1 moves on masks, however long
+ * the game.
+ *
+ * A history made for a board observes it, recording each move as it is made.
+ * Resetting the board or setting it to a position starts the history again
+ * from there, except when the history itself sets the position to take back
+ * moves.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-03
+ */
+public class GameHistory implements BoardObserver {
+
+	/** The number of plies between checkpoints */
+	public static final int CHECKPOINT_INTERVAL = 16;
+
+	/** The board observed, null if moves are only pushed */
+	private final CheckerBoard board;
+
+	/** Move codes, indexed by ply */
+	private short[] codes = new short[64];
+
+	/** The positions at every CHECKPOINT_INTERVAL plies, PositionCodec.BYTES bytes each */
+	private byte[] checkpoints = new byte[4 * PositionCodec.BYTES];
+
+	/** The number of moves recorded */
+	private int plies;
+
+	/** The mask of X checkers in the current position */
+	private int x;
+
+	/** The mask of O checkers in the current position */
+	private int o;
+
+	/** If X is the side to move in the current position */
+	private boolean xToMove;
+
+	/** If the history is setting the board's position itself */
+	private boolean restoring;
+
+	/** Scratch array for checking moves */
+	private final int[] legal = new int[Bitboards.MAX_MOVES];
+
+
+	/**
+	 * Constructor for a history of moves pushed by the caller.
+	 * @param x         The mask of X checkers in the starting position.
+	 * @param o         The mask of O checkers in the starting position.
+	 * @param xToMove   If X is the side to move in the starting position.
+	 */
+	public GameHistory(int x, int o, boolean xToMove) {
+		this.board = null;
+		clear(x, o, xToMove);
+	}
+
+	/**
+	 * Constructor for a history of the moves made on a board from its current position.
+	 * @param board The board, which the history observes.
+	 * @throws IllegalArgumentException if the board is not 8x8.
+	 */
+	public GameHistory(CheckerBoard board) throws IllegalArgumentException {
+		if (board.getVariant() != Variant.ENGLISH) {
+			throw new IllegalArgumentException("history is only kept for " + Variant.ENGLISH);
+		}
+		this.board = board;
+		clear(Bitboards.xMask(board), Bitboards.oMask(board), Bitboards.xToMove(board));
+		board.addObserver(this);
+	}
+
+	/**
+	 * Creates the history of a game played from the starting position, such as one read from a GameArchive.
+	 * @param moves The moves, encoded as in Bitboards.
+	 * @return The history.
+	 * @throws IllegalArgumentException if a move is illegal.
+	 */
+	public static GameHistory of(int[] moves) throws IllegalArgumentException {
+		GameHistory history = new GameHistory(Bitboards.START_X, Bitboards.START_O, true);
+		for (int move : moves) {
+			history.push(move);
+		}
+		return history;
+	}
+
+	/**
+	 * Forgets every move and starts again from a position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 */
+	public void clear(int x, int o, boolean xToMove) {
+		this.x = x;
+		this.o = o;
+		this.xToMove = xToMove;
+		plies = 0;
+		PositionCodec.encode(x, o, xToMove, checkpoints, 0);
+	}
+
+	/**
+	 * Records a move made in the current position.
+	 * @param move The encoded move.
+	 * @throws IllegalArgumentException if the move is not legal.
+	 */
+	public void push(int move) throws IllegalArgumentException {
+		int count = Bitboards.generateMoves(x, o, xToMove, legal);
+		for (int i = 0; i < count; i++) {
+			if (legal[i] == move) {
+				append(move);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("illegal move at ply " + plies + ": " + Bitboards.toNotation(move));
+	}
+
+	/**
+	 * Forgets the last move, returning to the position before it.
+	 * @return The move taken back.
+	 * @throws IllegalStateException if there are no moves.
+	 */
+	public int pop() throws IllegalStateException {
+		if (plies == 0) {
+			throw new IllegalStateException("no move to take back");
+		}
+		int move = getMove(plies - 1);
+		plies--;
+		restore(plies);
+		return move;
+	}
+
+	/**
+	 * Takes back moves on the observed board, setting it to the position before them.
+	 * @param count The number of moves to take back.
+	 * @throws IllegalStateException if there are not that many moves or no board is observed.
+	 */
+	public void takeBack(int count) throws IllegalStateException {
+		if (board == null) {
+			throw new IllegalStateException("no board to take moves back on");
+		}
+		if (count > plies) {
+			throw new IllegalStateException("only " + plies + " moves to take back");
+		}
+		plies -= count;
+		restore(plies);
+		restoring = true;
+		try {
+			board.setPosition(x & 0xFFFFFFFFL, o & 0xFFFFFFFFL, xToMove);
+		}
+		finally {
+			restoring = false;
+		}
+	}
+
+	/**
+	 * Gets the position after a number of moves.
+	 * @param ply The number of moves, 0 to getPlies().
+	 * @return The position.
+	 * @throws IndexOutOfBoundsException if the ply has not been played.
+	 */
+	public PositionCodec.Position getPosition(int ply) throws IndexOutOfBoundsException {
+		if (ply < 0 || ply > plies) {
+			throw new IndexOutOfBoundsException("ply " + ply + " of " + plies);
+		}
+		int offset = ply / CHECKPOINT_INTERVAL * PositionCodec.BYTES;
+		int atX = PositionCodec.decodeX(checkpoints, offset);
+		int atO = PositionCodec.decodeO(checkpoints, offset);
+		boolean atXToMove = PositionCodec.decodeXToMove(checkpoints, offset);
+		for (int i = ply - ply % CHECKPOINT_INTERVAL; i < ply; i++) {
+			int move = getMove(i);
+			if (atXToMove) {
+				atX = Bitboards.moveMover(atX, move);
+				atO = Bitboards.moveOpponent(atO, move);
+			} else {
+				atO = Bitboards.moveMover(atO, move);
+				atX = Bitboards.moveOpponent(atX, move);
+			}
+			atXToMove = ! atXToMove;
+		}
+		return new PositionCodec.Position(atX & 0xFFFFFFFFL, atO & 0xFFFFFFFFL, atXToMove);
+	}
+
+	/**
+	 * Sets a board to the position after a number of moves, without changing the history.
+	 * @param ply   The number of moves, 0 to getPlies().
+	 * @param view  The board, which must be 8x8 and is usually not the observed board.
+	 * @throws IndexOutOfBoundsException if the ply has not been played.
+	 */
+	public void seek(int ply, CheckerBoard view) throws IndexOutOfBoundsException {
+		getPosition(ply).applyTo(view);
+	}
+
+	/**
+	 * Gets a move.
+	 * @param ply The number of moves before it.
+	 * @return The encoded move.
+	 * @throws IndexOutOfBoundsException if the move has not been played.
+	 */
+	public int getMove(int ply) throws IndexOutOfBoundsException {
+		if (ply < 0 || ply >= plies) {
+			throw new IndexOutOfBoundsException("move " + ply + " of " + plies);
+		}
+		return SpectatorHub.decodeMove(codes[ply] & 0xFFFF);
+	}
+
+	/**
+	 * Gets the number of moves recorded.
+	 * @return The number of plies since the starting position.
+	 */
+	public int getPlies() {
+		return plies;
+	}
+
+	/**
+	 * Records a move made on the observed board.
+	 * @param fromRow       The starting row.
+	 * @param fromColumn    The starting column.
+	 * @param toRow         The finishing row.
+	 * @param toColumn      The finishing column.
+	 * @param captured      If the move captured a piece.
+	 */
+	@Override
+	public void pieceMoved(int fromRow, int fromColumn, int toRow, int toColumn, boolean captured) {
+		int over = captured ? Bitboards.square((fromRow + toRow) / 2, (fromColumn + toColumn) / 2) : -1;
+		append(Bitboards.encode(Bitboards.square(fromRow, fromColumn), Bitboards.square(toRow, toColumn), over));
+	}
+
+	/**
+	 * Starts again from the starting position when the observed board is reset.
+	 */
+	@Override
+	public void boardReset() {
+		clear(Bitboards.START_X, Bitboards.START_O, true);
+	}
+
+	/**
+	 * Starts again from the new position when the observed board is set to one by anything else.
+	 */
+	@Override
+	public void positionSet() {
+		if (! restoring) {
+			clear(Bitboards.xMask(board), Bitboards.oMask(board), Bitboards.xToMove(board));
+		}
+	}
+
+	/**
+	 * Records a move known to be legal, adding a checkpoint when one is due.
+	 * @param move The encoded move.
+	 */
+	private void append(int move) {
+		if (plies == codes.length) {
+			codes = Arrays.copyOf(codes, plies * 2);
+		}
+		codes[plies++] = (short) SpectatorHub.encodeMove(move);
+		if (xToMove) {
+			x = Bitboards.moveMover(x, move);
+			o = Bitboards.moveOpponent(o, move);
+		} else {
+			o = Bitboards.moveMover(o, move);
+			x = Bitboards.moveOpponent(x, move);
+		}
+		xToMove = ! xToMove;
+		if (plies % CHECKPOINT_INTERVAL == 0) {
+			int offset = plies / CHECKPOINT_INTERVAL * PositionCodec.BYTES;
+			if (offset == checkpoints.length) {
+				checkpoints = Arrays.copyOf(checkpoints, offset * 2);
+			}
+			PositionCodec.encode(x, o, xToMove, checkpoints, offset);
+		}
+	}
+
+	/**
+	 * Makes the position after a number of moves the current position.
+	 * @param ply The number of moves.
+	 */
+	private void restore(int ply) {
+		PositionCodec.Position position = getPosition(ply);
+		x = (int) position.x;
+		o = (int) position.o;
+		xToMove = position.xToMove;
+	}
+
+	/**
+	 * Main method to check every ply of random games against a replay from the start, and time both.
+	 * @param args	[GAMES]
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		Random random = new Random(1);
+		int[] moves = new int[Bitboards.MAX_MOVES];
+		GameHistory[] histories = new GameHistory[games];
+		int positions = 0;
+		for (int game = 0; game < games; game++) {
+			GameHistory history = new GameHistory(Bitboards.START_X, Bitboards.START_O, true);
+			int count;
+			while ((count = Bitboards.generateMoves(history.x, history.o, history.xToMove, moves)) > 0) {
+				history.push(moves[random.nextInt(count)]);
+			}
+			histories[game] = history;
+			positions += history.getPlies() + 1;
+		}
+
+		long checksum = 0;
+		for (int round = 0; round < 3; round++) {		//the first rounds warm up both paths
+			long start = System.nanoTime();
+			for (GameHistory history : histories) {
+				for (int ply = history.getPlies(); ply >= 0; ply--) {
+					PositionCodec.Position position = history.getPosition(ply);
+					checksum += position.x ^ position.o;
+				}
+			}
+			long seekNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (GameHistory history : histories) {
+				for (int ply = history.getPlies(); ply >= 0; ply--) {
+					PositionCodec.Position position = replay(history, ply);
+					checksum -= position.x ^ position.o;
+				}
+			}
+			long replayNanos = System.nanoTime() - start;
+			if (round == 2) {
+				System.out.printf("%d positions of %d games: seek %d ns, replay from the start %d ns per position%n",
+						positions, games, seekNanos / positions, replayNanos / positions);
+			}
+		}
+		for (GameHistory history : histories) {
+			for (int ply = 0; ply <= history.getPlies(); ply++) {
+				String expected = replay(history, ply).toString();
+				if (! history.getPosition(ply).toString().equals(expected)) {
+					System.err.println("Ply " + ply + " restored as " + history.getPosition(ply) + " instead of " + expected);
+					System.exit(1);
+				}
+			}
+			for (int ply = history.getPlies(); ply > 0; ply--) {
+				history.pop();
+				String expected = replay(history, ply - 1).toString();
+				String current = new PositionCodec.Position(history.x & 0xFFFFFFFFL, history.o & 0xFFFFFFFFL, history.xToMove).toString();
+				if (! current.equals(expected)) {
+					System.err.println("Taking back to ply " + (ply - 1) + " gave " + current + " instead of " + expected);
+					System.exit(1);
+				}
+			}
+		}
+		System.out.println("every position restored and taken back correctly" + (checksum == 0 ? "" : ", checksum " + checksum));
+	}
+
+	/**
+	 * Finds the position after a number of moves by replaying every move from the start.
+	 * @param history   The history.
+	 * @param ply       The number of moves.
+	 * @return The position.
+	 */
+	private static PositionCodec.Position replay(GameHistory history, int ply) {
+		int x = PositionCodec.decodeX(history.checkpoints, 0);
+		int o = PositionCodec.decodeO(history.checkpoints, 0);
+		boolean xToMove = PositionCodec.decodeXToMove(history.checkpoints, 0);
+		for (int i = 0; i < ply; i++) {
+			int move = history.getMove(i);
+			if (xToMove) {
+				x = Bitboards.moveMover(x, move);
+				o = Bitboards.moveOpponent(o, move);
+			} else {
+				o = Bitboards.moveMover(o, move);
+				x = Bitboards.moveOpponent(x, move);
+			}
+			xToMove = ! xToMove;
+		}
+		return new PositionCodec.Position(x & 0xFFFFFFFFL, o & 0xFFFFFFFFL, xToMove);
+	}
+}
@@ -0,0 +1,109 @@
+package core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * GamePool keeps finished CheckerBoards and computer players for reuse by new games
+ *
+ * Boards are reset and lose their observers when they are returned, and
+ * players go back to their default settings, so whatever is taken from the
+ * pool is ready for a new game and knows nothing of the last one.  Only 8x8
+ * boards are kept.  The pool is bounded: returns beyond its capacity are
+ * dropped and left to the garbage collector.  It is safe to use from many
+ * threads.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-04
+ */
+public class GamePool {
+
+	/** Boards ready for a new game */
+	private final ArrayBlockingQueue<CheckerBoard> boards;
+
+	/** Computer players ready for a new game */
+	private final ArrayBlockingQueue<CheckersComputerPlayer> players;
+
+
+	/**
+	 * Constructor
+	 * @param capacity The largest number of boards, and of players, kept.
+	 */
+	public GamePool(int capacity) {
+		boards = new ArrayBlockingQueue<>(capacity);
+		players = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * Fills the pool so the first games do not allocate either.
+	 * @param count The number of boards and players to create.
+	 */
+	public void prefill(int count) {
+		for (int i = 0; i < count; i++) {
+			CheckerBoard board = new CheckerBoard();
+			if (! boards.offer(board)) break;
+			players.offer(new CheckersComputerPlayer(board));
+		}
+	}
+
+	/**
+	 * Takes a board in the starting position from the pool, or creates one if the pool is empty.
+	 * @return The board.
+	 */
+	public CheckerBoard acquireBoard() {
+		CheckerBoard board = boards.poll();
+		return board != null ? board : new CheckerBoard();
+	}
+
+	/**
+	 * Returns a board to the pool once its game is over.
+	 * @param board The board, which must no longer be used by the caller.
+	 */
+	public void releaseBoard(CheckerBoard board) {
+		board.clearObservers();			//before the reset, so the last game's observers are not told of it
+		if (board.getVariant() != Variant.ENGLISH) {
+			return;
+		}
+		board.reset();
+		boards.offer(board);
+	}
+
+	/**
+	 * Takes a computer player from the pool, or creates one if the pool is empty.
+	 * @param board The board the player will play on.
+	 * @return The player.
+	 */
+	public CheckersComputerPlayer acquirePlayer(CheckerBoard board) {
+		CheckersComputerPlayer player = players.poll();
+		if (player == null) {
+			return new CheckersComputerPlayer(board);
+		}
+		player.setBoard(board);
+		return player;
+	}
+
+	/**
+	 * Returns a computer player to the pool once its game is over.
+	 * @param player The player, which must no longer be used by the caller.
+	 */
+	public void releasePlayer(CheckersComputerPlayer player) {
+		player.setScheduler(null, 0, null);
+		player.restoreDefaults();
+		players.offer(player);
+	}
+
+	/**
+	 * Gets the number of boards waiting in the pool.
+	 * @return The number of boards.
+	 */
+	public int availableBoards() {
+		return boards.size();
+	}
+
+	/**
+	 * Gets the number of players waiting in the pool.
+	 * @return The number of players.
+	 */
+	public int availablePlayers() {
+		return players.size();
+	}
+}
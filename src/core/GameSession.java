@@ -0,0 +1,83 @@
+package core;
+
+/**
+ * GameSession is one open game of a server, with its board and, in a one
+ * player game, its computer player
+ *
+ * Sessions are created and handed out by a SessionStore, which may hibernate
+ * a session that has been idle and give out a new GameSession for the same
+ * id later, so a session must be fetched from the store again for each move
+ * rather than kept.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-28
+ */
+public class GameSession {
+
+	/** The id of the session */
+	private final long id;
+
+	/** The board */
+	private final CheckerBoard board;
+
+	/** The computer player, null in a two player game */
+	private final CheckersComputerPlayer computer;
+
+	/** The time the session was last used in ms */
+	private volatile long lastActive;
+
+
+	/**
+	 * Constructor
+	 * @param id        The id of the session.
+	 * @param board     The board.
+	 * @param computer  The computer player, null in a two player game.
+	 * @param now       The current time in ms.
+	 */
+	GameSession(long id, CheckerBoard board, CheckersComputerPlayer computer, long now) {
+		this.id = id;
+		this.board = board;
+		this.computer = computer;
+		this.lastActive = now;
+	}
+
+	/**
+	 * Gets the id of the session.
+	 * @return The id.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the board.
+	 * @return The board.
+	 */
+	public CheckerBoard getBoard() {
+		return board;
+	}
+
+	/**
+	 * Gets the computer player.
+	 * @return The computer player, null in a two player game.
+	 */
+	public CheckersComputerPlayer getComputer() {
+		return computer;
+	}
+
+	/**
+	 * Gets the time the session was last used.
+	 * @return The time in ms.
+	 */
+	public long getLastActive() {
+		return lastActive;
+	}
+
+	/**
+	 * Marks the session as used.
+	 * @param now The current time in ms.
+	 */
+	void touch(long now) {
+		lastActive = now;
+	}
+}
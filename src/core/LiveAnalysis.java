@@ -0,0 +1,150 @@
+package core;
+
+import ui.CheckersTextConsole;
+
+/**
+ * LiveAnalysis searches the position on the board in the background while a
+ * player thinks, showing the evaluation, principal variation, depth and speed
+ * on the console as each iteration completes
+ *
+ * The search runs on its own daemon thread, so the console keeps reading
+ * input while it runs.  stop() interrupts the thread, which makes the search
+ * return within about a thousand positions, and waits for it, so nothing is
+ * shown for a position once a move has been made on it.  Only 8x8 boards can
+ * be analysed, and repetitions are not scored as draws.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-02
+ */
+public class LiveAnalysis implements SearchListener {
+
+	/** The number of buckets of the analysis cache (16MB) */
+	private static final int CACHE_BUCKETS = 1 << 18;
+
+	/** The board analysed */
+	private final CheckerBoard board;
+
+	/** The console the analysis is shown on */
+	private final CheckersTextConsole console;
+
+	/** The search, used by one analysis thread at a time */
+	private final AlphaBetaSearch search;
+
+	/** The thread running the current analysis, null if there is none */
+	private Thread thread;
+
+	/** If X is the side to move in the position being analysed */
+	private volatile boolean xToMove;
+
+	/** If the player wants the position analysed */
+	private boolean enabled;
+
+
+	/**
+	 * Constructor
+	 * @param board     The board to analyse.
+	 * @param console   The console to show the analysis on.
+	 */
+	public LiveAnalysis(CheckerBoard board, CheckersTextConsole console) {
+		this.board = board;
+		this.console = console;
+		search = new AlphaBetaSearch(BatchEvaluator.create(EvaluationWeights.defaults()),
+				AnalysisCache.inMemory(CACHE_BUCKETS));
+		search.setListener(this);
+	}
+
+	/**
+	 * Turns analysis on, starting it on the current position, or off, stopping it.
+	 * @param enabled If the position is to be analysed.
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (enabled) {
+			start();
+		} else {
+			stop();
+		}
+	}
+
+	/**
+	 * Checks if analysis is turned on.
+	 * @return If the position is analysed.
+	 */
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts analysing the current position if analysis is turned on, stopping any earlier analysis.
+	 */
+	public synchronized void start() {
+		stop();
+		if (! enabled || board.getVariant() != Variant.ENGLISH) {
+			return;
+		}
+		int x = Bitboards.xMask(board);
+		int o = Bitboards.oMask(board);
+		boolean side = Bitboards.xToMove(board);
+		xToMove = side;
+		thread = new Thread(() -> search.search(x, o, side, SearchLimits.depth(AlphaBetaSearch.MAX_PLY - 1)), "analysis");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the current analysis and waits for it to finish, so it shows nothing more.
+	 */
+	public synchronized void stop() {
+		if (thread == null) {
+			return;
+		}
+		thread.interrupt();
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		thread = null;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Shows a completed iteration on the console.
+	 * @param result    The result of the iteration.
+	 * @param line      The principal variation.
+	 */
+	@Override
+	public void iterationCompleted(SearchResult result, int[] line) {
+		StringBuilder moves = new StringBuilder();
+		for (int move : line) {
+			if (moves.length() > 0) {
+				moves.append(' ');
+			}
+			moves.append(Bitboards.toNotation(move));
+		}
+		long nodesPerSecond = result.getNanos() > 0 ? result.getNodes() * 1_000_000_000L / result.getNanos() : 0;
+		console.displayAnalysis(result.getDepth(), evaluation(xToMove ? result.getScore() : -result.getScore()),
+				nodesPerSecond, moves.toString());
+	}
+
+	/**
+	 * Writes a score for the console.
+	 * @param score The score from the point of view of X.
+	 * @return The score with its sign, or the side which wins and in how many plies.
+	 */
+	static String evaluation(int score) {
+		if (score > AlphaBetaSearch.WIN - AlphaBetaSearch.MAX_PLY) {
+			return "X wins in " + (AlphaBetaSearch.WIN - score);
+		}
+		if (score < -AlphaBetaSearch.WIN + AlphaBetaSearch.MAX_PLY) {
+			return "O wins in " + (AlphaBetaSearch.WIN + score);
+		}
+		return score > 0 ? "+" + score : Integer.toString(score);
+	}
+}
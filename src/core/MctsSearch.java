@@ -0,0 +1,413 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MctsSearch chooses a move by Monte Carlo Tree Search
+ *
+ * Every thread walks the same tree, choosing children by UCT.  A thread adds a
+ * virtual loss to each node it passes so the other threads spread out over
+ * different lines.  A random playout, which prefers jumps the way the old
+ * computer player did, scores each new leaf.
+ *
+ * The tree lives in a pool of parallel arrays allocated once and reused by
+ * every search, so a growing tree creates no garbage.  A node's children are
+ * stored next to each other in the pool.  When the pool is full the tree
+ * stops growing and the remaining playouts start from the existing leaves.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-10
+ */
+public class MctsSearch implements Engine {
+
+	/** Node has not been expanded */
+	private static final int UNEXPANDED = 0;
+
+	/** Node is being expanded by a thread */
+	private static final int EXPANDING = 1;
+
+	/** Node has been expanded */
+	private static final int EXPANDED = 2;
+
+	/** The number of losses added to a node while a thread is searching below it */
+	private static final int VIRTUAL_LOSS = 3;
+
+	/** The UCT exploration constant */
+	private static final double EXPLORATION = 1.4;
+
+	/** The longest playout, no game can last longer */
+	private static final int MAX_PLAYOUT = 200;
+
+	/** The move leading to each node */
+	private final int[] moveOf;
+
+	/** The index of each node's first child */
+	private final int[] firstChild;
+
+	/** The number of children of each node */
+	private final int[] childCount;
+
+	/** The expansion state of each node */
+	private final AtomicIntegerArray state;
+
+	/** The number of visits to each node, including virtual losses */
+	private final AtomicIntegerArray visits;
+
+	/** The number of playouts won through each node by the side that moved into it */
+	private final AtomicIntegerArray wins;
+
+	/** The next free node in the pool */
+	private final AtomicInteger nextFree = new AtomicInteger();
+
+	/** The number of playouts in the current search */
+	private final AtomicLong playouts = new AtomicLong();
+
+	/** The threads running playouts */
+	private final ExecutorService workers;
+
+	/** The tasks run on each thread */
+	private final List<Callable<Void>> tasks = new ArrayList<>();
+
+	/** The root position of the current search */
+	private volatile int rootX;
+
+	/** The root position of the current search */
+	private volatile int rootO;
+
+	/** The side to move at the root of the current search */
+	private volatile boolean rootXToMove;
+
+	/** The playout limit of the current search */
+	private volatile long playoutLimit;
+
+	/** The deadline of the current search from System.nanoTime() */
+	private volatile long deadline;
+
+	/** Playouts per second of the last search */
+	private long playoutsPerSecond;
+
+
+	/**
+	 * Constructor
+	 * @param threads   The number of threads running playouts.
+	 * @param poolSize  The largest number of nodes in the tree.
+	 */
+	public MctsSearch(int threads, int poolSize) {
+		moveOf = new int[poolSize];
+		firstChild = new int[poolSize];
+		childCount = new int[poolSize];
+		state = new AtomicIntegerArray(poolSize);
+		visits = new AtomicIntegerArray(poolSize);
+		wins = new AtomicIntegerArray(poolSize);
+		workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "mcts");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < threads; i++) {
+			long seed = 0x9E3779B97F4A7C15L * (i + 1);
+			tasks.add(() -> {
+				runPlayouts(seed ^ System.nanoTime());
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * Searches a position until the playout or time limit is reached.
+	 * The node limit of the search limits is the number of playouts, the depth limit is not used.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param limits    When to stop searching.
+	 * @return The most visited move, its score and the number of playouts.
+	 */
+	@Override
+	public synchronized SearchResult search(int x, int o, boolean xToMove, SearchLimits limits) {
+		long start = System.nanoTime();
+		rootX = x;
+		rootO = o;
+		rootXToMove = xToMove;
+		playoutLimit = limits.getNodes();
+		deadline = limits.deadline(start);
+		playouts.set(0);
+		nextFree.set(1);
+		initNode(0, 0);
+
+		//an interrupt stops the workers, but the search waits for them to leave the tree
+		List<Future<Void>> futures = new ArrayList<>();
+		for (Callable<Void> task : tasks) {
+			futures.add(workers.submit(task));
+		}
+		boolean interrupted = false;
+		Throwable failure = null;
+		for (Future<Void> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+					playoutLimit = 0;
+				}
+				catch (ExecutionException e) {
+					failure = e.getCause();
+					playoutLimit = 0;
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw new IllegalStateException("playout failed", failure);
+		}
+
+		long elapsed = System.nanoTime() - start;
+		long total = playouts.get();
+		playoutsPerSecond = total * 1_000_000_000L / Math.max(1, elapsed);
+
+		int best = -1;
+		int first = firstChild[0];
+		if (state.get(0) == EXPANDED) {
+			for (int i = first; i < first + childCount[0]; i++) {
+				if (best < 0 || visits.get(i) > visits.get(best)) {
+					best = i;
+				}
+			}
+		}
+		if (best < 0) {
+			return new SearchResult(0, -AlphaBetaSearch.WIN, 0, total, elapsed);
+		}
+		double winRate = (double) wins.get(best) / Math.max(1, visits.get(best));
+		int score = (int) Math.round((winRate - 0.5) * 2000);
+		return new SearchResult(moveOf[best], score, treeDepth(), total, elapsed);
+	}
+
+	/**
+	 * Runs playouts on the calling thread until the search limits are reached.
+	 * @param seed The seed of the thread's random numbers.
+	 */
+	private void runPlayouts(long seed) {
+		int[] path = new int[MAX_PLAYOUT];
+		int[] moves = new int[Bitboards.MAX_MOVES];
+		long random = seed | 1;
+		while (true) {
+			long done = playouts.get();
+			if (done >= playoutLimit || System.nanoTime() >= deadline || Thread.currentThread().isInterrupted()) {
+				return;
+			}
+
+			//select, adding a virtual loss on the way down
+			int x = rootX;
+			int o = rootO;
+			boolean xToMove = rootXToMove;
+			int node = 0;
+			int length = 0;
+			path[length++] = node;
+			visits.addAndGet(node, VIRTUAL_LOSS);
+			while (state.get(node) == EXPANDED && childCount[node] > 0) {
+				node = selectChild(node);
+				int move = moveOf[node];
+				if (xToMove) {
+					x = Bitboards.moveMover(x, move);
+					o = Bitboards.moveOpponent(o, move);
+				} else {
+					o = Bitboards.moveMover(o, move);
+					x = Bitboards.moveOpponent(x, move);
+				}
+				xToMove = ! xToMove;
+				path[length++] = node;
+				visits.addAndGet(node, VIRTUAL_LOSS);
+			}
+
+			//expand
+			if (state.get(node) == UNEXPANDED && state.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+				expand(node, x, o, xToMove, moves);
+			}
+
+			//play out and propagate, replacing each virtual loss with the real result
+			boolean xWon;
+			if (state.get(node) == EXPANDED && childCount[node] == 0) {
+				xWon = ! xToMove;			//side to move has no moves and has lost
+			} else {
+				random = next(random);
+				xWon = playout(x, o, xToMove, moves, random);
+			}
+			boolean movedX = ! rootXToMove;	//the side that moved into the root
+			for (int i = 0; i < length; i++) {
+				int n = path[i];
+				if (movedX == xWon) {
+					wins.incrementAndGet(n);
+				}
+				visits.addAndGet(n, 1 - VIRTUAL_LOSS);
+				movedX = ! movedX;
+			}
+			playouts.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Chooses the child with the highest UCT value.
+	 * @param node The parent node.
+	 * @return The chosen child.
+	 */
+	private int selectChild(int node) {
+		int first = firstChild[node];
+		int last = first + childCount[node];
+		double logParent = Math.log(Math.max(1, visits.get(node)));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = first; i < last; i++) {
+			int n = visits.get(i);
+			if (n == 0) {
+				return i;
+			}
+			double value = (double) wins.get(i) / n + EXPLORATION * Math.sqrt(logParent / n);
+			if (value > bestValue) {
+				bestValue = value;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Adds the children of a node taken from the pool.
+	 * If the pool is full the node is left unexpanded for good.
+	 * @param node      The node, already marked as EXPANDING.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param moves     Scratch array for the moves.
+	 */
+	private void expand(int node, int x, int o, boolean xToMove, int[] moves) {
+		int count = Bitboards.generateMoves(x, o, xToMove, moves);
+		int first = nextFree.getAndAdd(count);
+		if (first + count > moveOf.length) {
+			return;		//pool is full, stays EXPANDING so no thread tries again
+		}
+		for (int i = 0; i < count; i++) {
+			initNode(first + i, moves[i]);
+		}
+		firstChild[node] = first;
+		childCount[node] = count;
+		state.set(node, EXPANDED);		//publishes the children to other threads
+	}
+
+	/**
+	 * Clears a node taken from the pool.
+	 * @param node  The node.
+	 * @param move  The move leading to the node.
+	 */
+	private void initNode(int node, int move) {
+		moveOf[node] = move;
+		firstChild[node] = 0;
+		childCount[node] = 0;
+		visits.set(node, 0);
+		wins.set(node, 0);
+		state.set(node, UNEXPANDED);
+	}
+
+	/**
+	 * Plays random moves to the end of the game, always jumping when possible.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param moves     Scratch array for the moves.
+	 * @param random    The random state.
+	 * @return If X won.
+	 */
+	private static boolean playout(int x, int o, boolean xToMove, int[] moves, long random) {
+		for (int ply = 0; ply < MAX_PLAYOUT; ply++) {
+			int count = Bitboards.generateMoves(x, o, xToMove, moves);
+			if (count == 0) {
+				return ! xToMove;
+			}
+			int jumps = 0;
+			while (jumps < count && Bitboards.isJump(moves[jumps])) {
+				jumps++;
+			}
+			random = next(random);
+			int choices = jumps > 0 ? jumps : count;
+			int move = moves[(int) ((random >>> 33) % choices)];
+			if (xToMove) {
+				x = Bitboards.moveMover(x, move);
+				o = Bitboards.moveOpponent(o, move);
+			} else {
+				o = Bitboards.moveMover(o, move);
+				x = Bitboards.moveOpponent(x, move);
+			}
+			xToMove = ! xToMove;
+		}
+		return Integer.bitCount(x) > Integer.bitCount(o);
+	}
+
+	/**
+	 * Advances a xorshift random state.
+	 * @param state The state, not 0.
+	 * @return The next state.
+	 */
+	private static long next(long state) {
+		state ^= state << 13;
+		state ^= state >>> 7;
+		state ^= state << 17;
+		return state;
+	}
+
+	/**
+	 * Finds the depth of the principal line of the tree.
+	 * @return The number of plies along the most visited children.
+	 */
+	private int treeDepth() {
+		int depth = 0;
+		int node = 0;
+		while (state.get(node) == EXPANDED && childCount[node] > 0) {
+			int first = firstChild[node];
+			int best = first;
+			for (int i = first; i < first + childCount[node]; i++) {
+				if (visits.get(i) > visits.get(best)) {
+					best = i;
+				}
+			}
+			node = best;
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 * Gets the speed of the last search.
+	 * @return The number of playouts per second.
+	 */
+	public long getPlayoutsPerSecond() {
+		return playoutsPerSecond;
+	}
+
+	/**
+	 * Gets the name of the engine.
+	 * @return The name.
+	 */
+	@Override
+	public String getName() {
+		return "mcts";
+	}
+
+	/**
+	 * Stops the playout threads.
+	 */
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+}
@@ -0,0 +1,231 @@
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * PerformanceHarness plays headless games and fails if the hot paths of a move
+ * allocate or slow down beyond fixed ceilings
+ *  contains a main method, which exits with status 1 if a ceiling is exceeded
+ *
+ * Allocation is measured with the allocated bytes counter of the current
+ * thread, around each call of isValid, movePiece and checkWin and around
+ * whole games.  Latency is sampled with nanoTime for each ply, which is
+ * checking, making and judging one move and switching the turn.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-27
+ */
+public class PerformanceHarness {
+
+	/** Most bytes allocated by one call of isValid, movePiece or checkWin on average */
+	private static final double CALL_BYTES = 1.0;
+
+	/** Most bytes allocated by one headless game on average */
+	private static final double GAME_BYTES = 64.0;
+
+	/** Most time for the median ply in ns */
+	private static final long P50_NANOS = 5_000;
+
+	/** Most time for the 99th percentile ply in ns */
+	private static final long P99_NANOS = 50_000;
+
+	/** Most time for the 99.9th percentile ply in ns */
+	private static final long P999_NANOS = 500_000;
+
+	/** The number of games played before measuring, so every path is compiled */
+	private static final int WARMUP_GAMES = 20_000;
+
+	/** The number of games measured */
+	private static final int GAMES = 20_000;
+
+	/** The allocation counter of the current thread */
+	private final com.sun.management.ThreadMXBean threads;
+
+	/** The board played on */
+	private final CheckerBoard board = new CheckerBoard();
+
+	/** The moves of the side to move */
+	private final int[] moves = new int[Bitboards.MAX_MOVES];
+
+	/** The coordinates of the move being played */
+	private final int[] coordinates = new int[4];
+
+	/** The random number generator choosing moves */
+	private final Random random = new Random(1);
+
+	/** Bytes allocated by each kind of call: isValid, movePiece, checkWin */
+	private final long[] callBytes = new long[3];
+
+	/** Number of calls of each kind */
+	private final long[] calls = new long[3];
+
+	/** Time taken by each ply measured in ns */
+	private long[] plyNanos = new long[1 << 16];
+
+	/** Number of plies measured */
+	private int plies;
+
+
+	/**
+	 * Constructor
+	 * @param threads The allocation counter.
+	 */
+	private PerformanceHarness(com.sun.management.ThreadMXBean threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Main method to run the harness.
+	 * @param args	[--scale F] multiplies the latency ceilings, for slow machines.
+	 */
+	public static void main(String[] args) {
+		double scale = 1.0;
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals("--scale")) {
+				scale = Double.parseDouble(args[++i]);
+			}
+		}
+		if (! (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			System.err.println("This JVM cannot count allocated bytes");
+			System.exit(1);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		PerformanceHarness harness = new PerformanceHarness(threads);
+		for (int i = 0; i < WARMUP_GAMES; i++) {
+			harness.playGame(false);
+		}
+		Arrays.fill(harness.callBytes, 0);
+		Arrays.fill(harness.calls, 0);
+		long start = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < GAMES; i++) {
+			harness.playGame(false);
+		}
+		double gameBytes = (double) (threads.getCurrentThreadAllocatedBytes() - start) / GAMES;
+		for (int i = 0; i < GAMES; i++) {
+			harness.playGame(true);
+		}
+
+		long[] nanos = Arrays.copyOf(harness.plyNanos, harness.plies);
+		Arrays.sort(nanos);
+		boolean passed = true;
+		passed &= check("isValid bytes/call", (double) harness.callBytes[0] / harness.calls[0], CALL_BYTES);
+		passed &= check("movePiece bytes/call", (double) harness.callBytes[1] / harness.calls[1], CALL_BYTES);
+		passed &= check("checkWin bytes/call", (double) harness.callBytes[2] / harness.calls[2], CALL_BYTES);
+		passed &= check("bytes/game", gameBytes, GAME_BYTES);
+		passed &= check("ply p50 ns", percentile(nanos, 0.5), P50_NANOS * scale);
+		passed &= check("ply p99 ns", percentile(nanos, 0.99), P99_NANOS * scale);
+		passed &= check("ply p99.9 ns", percentile(nanos, 0.999), P999_NANOS * scale);
+		System.out.println(harness.plies + " plies measured");
+		if (! passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Plays one game of random legal moves.
+	 * @param timed If each ply is timed, otherwise each call is measured for allocation.
+	 */
+	private void playGame(boolean timed) {
+		board.reset();
+		boolean won = false;
+		while (! won) {
+			int x = Bitboards.xMask(board);
+			int o = Bitboards.oMask(board);
+			int count = Bitboards.generateMoves(x, o, Bitboards.xToMove(board), moves);
+			if (count == 0) {
+				return;
+			}
+			int move = moves[random.nextInt(count)];
+			coordinates[0] = Bitboards.row(Bitboards.from(move));
+			coordinates[1] = Bitboards.column(Bitboards.from(move));
+			coordinates[2] = Bitboards.row(Bitboards.to(move));
+			coordinates[3] = Bitboards.column(Bitboards.to(move));
+			if (timed) {
+				long start = System.nanoTime();
+				won = ply();
+				record(System.nanoTime() - start);
+			} else {
+				won = measuredPly();
+			}
+		}
+	}
+
+	/**
+	 * Plays the chosen move as Driver does.
+	 * @return If the move won the game.
+	 * @throws IllegalStateException if the move is rejected.
+	 */
+	private boolean ply() throws IllegalStateException {
+		if (! CheckersLogic.isValid(coordinates, board)) {
+			throw new IllegalStateException("legal move rejected");
+		}
+		board.movePiece(coordinates);
+		boolean won = CheckersLogic.checkWin(board);
+		board.switchTurn();
+		return won;
+	}
+
+	/**
+	 * Plays the chosen move, counting the bytes allocated by each call.
+	 * @return If the move won the game.
+	 * @throws IllegalStateException if the move is rejected.
+	 */
+	private boolean measuredPly() throws IllegalStateException {
+		long before = threads.getCurrentThreadAllocatedBytes();
+		boolean valid = CheckersLogic.isValid(coordinates, board);
+		long afterValid = threads.getCurrentThreadAllocatedBytes();
+		board.movePiece(coordinates);
+		long afterMove = threads.getCurrentThreadAllocatedBytes();
+		boolean won = CheckersLogic.checkWin(board);
+		long afterWin = threads.getCurrentThreadAllocatedBytes();
+		board.switchTurn();
+		if (! valid) {
+			throw new IllegalStateException("legal move rejected");
+		}
+		callBytes[0] += afterValid - before;
+		callBytes[1] += afterMove - afterValid;
+		callBytes[2] += afterWin - afterMove;
+		calls[0]++;
+		calls[1]++;
+		calls[2]++;
+		return won;
+	}
+
+	/**
+	 * Records the time of one ply.
+	 * @param nanos The time in ns.
+	 */
+	private void record(long nanos) {
+		if (plies == plyNanos.length) {
+			plyNanos = Arrays.copyOf(plyNanos, plies * 2);
+		}
+		plyNanos[plies++] = nanos;
+	}
+
+	/**
+	 * Gets a percentile of sorted samples.
+	 * @param sorted    The samples, sorted.
+	 * @param fraction  The percentile as a fraction.
+	 * @return The sample at the percentile.
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+	}
+
+	/**
+	 * Prints a measurement against its ceiling.
+	 * @param name      The name of the measurement.
+	 * @param value     The value measured.
+	 * @param ceiling   The most the value may be.
+	 * @return If the value is within the ceiling.
+	 */
+	private static boolean check(String name, double value, double ceiling) {
+		boolean passed = value <= ceiling;
+		System.out.printf("%-22s %12.1f  ceiling %12.1f  %s%n", name, value, ceiling, passed ? "ok" : "FAILED");
+		return passed;
+	}
+}
@@ -0,0 +1,71 @@
+package core;
+
+/**
+ * Perft counts the move paths of a given length from a position, which checks
+ * move generation and measures its speed
+ *  contains a main method to count from the start of a game in one process
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-23
+ */
+public class Perft {
+
+	/** The moves generated at each ply */
+	private final int[][] moveStack = new int[AlphaBetaSearch.MAX_PLY][Bitboards.MAX_MOVES];
+
+
+	/**
+	 * Counts the move paths of a given length.
+	 * A game that ends early adds nothing.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param depth     The length of the paths, 0 to MAX_PLY - 1.
+	 * @return The number of paths.
+	 */
+	public long count(int x, int o, boolean xToMove, int depth) {
+		return count(x, o, xToMove, depth, 0);
+	}
+
+	/**
+	 * Counts the move paths of a given length below a ply.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param depth     The remaining length.
+	 * @param ply       The distance from the first position.
+	 * @return The number of paths.
+	 */
+	private long count(int x, int o, boolean xToMove, int depth, int ply) {
+		if (depth == 0) {
+			return 1;
+		}
+		int[] moves = moveStack[ply];
+		int count = Bitboards.generateMoves(x, o, xToMove, moves);
+		if (depth == 1) {
+			return count;
+		}
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (xToMove) {
+				total += count(Bitboards.moveMover(x, move), Bitboards.moveOpponent(o, move), false, depth - 1, ply + 1);
+			} else {
+				total += count(Bitboards.moveOpponent(x, move), Bitboards.moveMover(o, move), true, depth - 1, ply + 1);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Main method to count paths from the start of a game.
+	 * @param args	The depth.
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		long start = System.nanoTime();
+		long total = new Perft().count(Bitboards.START_X, Bitboards.START_O, true, depth);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		System.out.println("perft(" + depth + ") = " + total + ", " + millis + " ms");
+	}
+}
@@ -0,0 +1,83 @@
+package core;
+
+/**
+ * PositionBlock contains a block of packed positions stored as parallel arrays
+ * so they can be evaluated together
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-03
+ */
+public class PositionBlock {
+
+	/** The masks of X checkers. */
+	final int[] x;
+
+	/** The masks of O checkers. */
+	final int[] o;
+
+	/** The scores of each position from X's point of view. */
+	final int[] scores;
+
+	/** The number of positions in the block. */
+	int size;
+
+
+	/**
+	 * Constructor
+	 * @param capacity The maximum number of positions in the block.
+	 */
+	public PositionBlock(int capacity) {
+		x = new int[capacity];
+		o = new int[capacity];
+		scores = new int[capacity];
+		size = 0;
+	}
+
+	/**
+	 * Adds a position to the block.
+	 * @param xMask The mask of X checkers.
+	 * @param oMask The mask of O checkers.
+	 * @return The index of the position in the block.
+	 * @throws IllegalStateException if the block is full.
+	 */
+	public int add(int xMask, int oMask) throws IllegalStateException {
+		if (size == x.length) {
+			throw new IllegalStateException("block is full");
+		}
+		x[size] = xMask;
+		o[size] = oMask;
+		return size++;
+	}
+
+	/**
+	 * Removes every position from the block.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of positions in the block.
+	 * @return The number of positions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the maximum number of positions in the block.
+	 * @return The capacity.
+	 */
+	public int capacity() {
+		return x.length;
+	}
+
+	/**
+	 * Gets the score of an evaluated position.
+	 * @param index The index of the position.
+	 * @return The score from X's point of view.
+	 */
+	public int getScore(int index) {
+		return scores[index];
+	}
+}
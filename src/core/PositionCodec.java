@@ -0,0 +1,329 @@
+package core;
+
+/**
+ * PositionCodec converts positions to and from a fixed size binary form and a
+ * short text form
+ *
+ * The binary form of an 8x8 position is BYTES long, each mask low byte first:
+ *   [X mask:4][O mask:4][king mask:4][X to move:1]
+ * Checkers are never crowned in this game, so the king mask is always written
+ * as 0 and a position with kings is rejected; it is kept so the format does
+ * not change if kings are added.
+ *
+ * The text form lists the side to move and the squares of each side, numbered
+ * from 1 in the order of Variant, for example "X:X1,2,3:O30,31,32".  A king
+ * would be written with a K before its square.  It works for every variant.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-26
+ */
+public final class PositionCodec {
+
+	/** The length of the binary form */
+	public static final int BYTES = 13;
+
+
+	/**
+	 * Position is a decoded position.
+	 */
+	public static final class Position {
+
+		/** The mask of X checkers */
+		public final long x;
+
+		/** The mask of O checkers */
+		public final long o;
+
+		/** If X is the side to move */
+		public final boolean xToMove;
+
+		/**
+		 * Constructor
+		 * @param x         The mask of X checkers.
+		 * @param o         The mask of O checkers.
+		 * @param xToMove   If X is the side to move.
+		 */
+		public Position(long x, long o, boolean xToMove) {
+			this.x = x;
+			this.o = o;
+			this.xToMove = xToMove;
+		}
+
+		/**
+		 * Sets up the position on a board.
+		 * @param board The board.
+		 * @throws IllegalArgumentException if the position does not fit the board.
+		 */
+		public void applyTo(CheckerBoard board) throws IllegalArgumentException {
+			board.setPosition(x, o, xToMove);
+		}
+
+		/**
+		 * Creates a String representation of the position.
+		 * @return The text form.
+		 */
+		@Override
+		public String toString() {
+			return toText(x, o, xToMove);
+		}
+	}
+
+	/**
+	 * Private constructor, PositionCodec only contains static members.
+	 */
+	private PositionCodec() {
+	}
+
+	/**
+	 * Writes the binary form of an 8x8 position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param out       The array written.
+	 * @param offset    The offset of the first byte.
+	 */
+	public static void encode(int x, int o, boolean xToMove, byte[] out, int offset) {
+		putInt(out, offset, x);
+		putInt(out, offset + 4, o);
+		putInt(out, offset + 8, 0);
+		out[offset + 12] = (byte) (xToMove ? 1 : 0);
+	}
+
+	/**
+	 * Writes the binary form of the position on an 8x8 board.
+	 * @param board     The board.
+	 * @param out       The array written.
+	 * @param offset    The offset of the first byte.
+	 * @throws IllegalArgumentException if the board is not 8x8.
+	 */
+	public static void encode(CheckerBoard board, byte[] out, int offset) throws IllegalArgumentException {
+		if (board.getVariant() != Variant.ENGLISH) {
+			throw new IllegalArgumentException("binary form is only defined for " + Variant.ENGLISH);
+		}
+		encode(Bitboards.xMask(board), Bitboards.oMask(board), Bitboards.xToMove(board), out, offset);
+	}
+
+	/**
+	 * Gets the binary form of the position on an 8x8 board.
+	 * @param board The board.
+	 * @return A new array of BYTES bytes.
+	 * @throws IllegalArgumentException if the board is not 8x8.
+	 */
+	public static byte[] encode(CheckerBoard board) throws IllegalArgumentException {
+		byte[] out = new byte[BYTES];
+		encode(board, out, 0);
+		return out;
+	}
+
+	/**
+	 * Gets the mask of X checkers from the binary form, without checking it.
+	 * @param in        The array read.
+	 * @param offset    The offset of the first byte.
+	 * @return The mask of X checkers.
+	 */
+	public static int decodeX(byte[] in, int offset) {
+		return getInt(in, offset);
+	}
+
+	/**
+	 * Gets the mask of O checkers from the binary form, without checking it.
+	 * @param in        The array read.
+	 * @param offset    The offset of the first byte.
+	 * @return The mask of O checkers.
+	 */
+	public static int decodeO(byte[] in, int offset) {
+		return getInt(in, offset + 4);
+	}
+
+	/**
+	 * Gets the side to move from the binary form, without checking it.
+	 * @param in        The array read.
+	 * @param offset    The offset of the first byte.
+	 * @return If X is the side to move.
+	 */
+	public static boolean decodeXToMove(byte[] in, int offset) {
+		return in[offset + 12] != 0;
+	}
+
+	/**
+	 * Reads and checks the binary form of an 8x8 position.
+	 * @param in        The array read.
+	 * @param offset    The offset of the first byte.
+	 * @return The position.
+	 * @throws IllegalArgumentException if the bytes are not a position.
+	 */
+	public static Position decode(byte[] in, int offset) throws IllegalArgumentException {
+		int x = decodeX(in, offset);
+		int o = decodeO(in, offset);
+		if (getInt(in, offset + 8) != 0) {
+			throw new IllegalArgumentException("kings are not part of this game");
+		}
+		if ((in[offset + 12] & ~1) != 0) {
+			throw new IllegalArgumentException("bad side to move: " + in[offset + 12]);
+		}
+		check(Variant.ENGLISH, x & 0xFFFFFFFFL, o & 0xFFFFFFFFL);
+		return new Position(x & 0xFFFFFFFFL, o & 0xFFFFFFFFL, decodeXToMove(in, offset));
+	}
+
+	/**
+	 * Reads the binary form of an 8x8 position onto a board.
+	 * @param in        The array read.
+	 * @param offset    The offset of the first byte.
+	 * @param board     The board, which must be 8x8.
+	 * @throws IllegalArgumentException if the bytes are not a position or the board is not 8x8.
+	 */
+	public static void decode(byte[] in, int offset, CheckerBoard board) throws IllegalArgumentException {
+		if (board.getVariant() != Variant.ENGLISH) {
+			throw new IllegalArgumentException("binary form is only defined for " + Variant.ENGLISH);
+		}
+		decode(in, offset).applyTo(board);
+	}
+
+	/**
+	 * Gets the text form of a position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @return The text form.
+	 */
+	public static String toText(long x, long o, boolean xToMove) {
+		StringBuilder text = new StringBuilder(xToMove ? "X" : "O");
+		appendSquares(text.append(":X"), x);
+		appendSquares(text.append(":O"), o);
+		return text.toString();
+	}
+
+	/**
+	 * Gets the text form of the position on a board of any variant.
+	 * @param board The board.
+	 * @return The text form.
+	 */
+	public static String toText(CheckerBoard board) {
+		return toText(VariantBoards.xMask(board), VariantBoards.oMask(board), Bitboards.xToMove(board));
+	}
+
+	/**
+	 * Appends the squares of a mask, numbered from 1 and separated by commas.
+	 * @param text  The text.
+	 * @param mask  The mask.
+	 */
+	private static void appendSquares(StringBuilder text, long mask) {
+		boolean first = true;
+		while (mask != 0) {
+			if (! first) {
+				text.append(',');
+			}
+			text.append(Long.numberOfTrailingZeros(mask) + 1);
+			mask &= mask - 1;
+			first = false;
+		}
+	}
+
+	/**
+	 * Reads the text form of a position.
+	 * @param text      The text form.
+	 * @param variant   The variant the position is on.
+	 * @return The position.
+	 * @throws IllegalArgumentException if the text is not a position of the variant.
+	 */
+	public static Position fromText(String text, Variant variant) throws IllegalArgumentException {
+		String[] fields = text.trim().split(":", -1);
+		if (fields.length != 3 || ! (fields[0].equals("X") || fields[0].equals("O"))) {
+			throw new IllegalArgumentException("expected side:Xsquares:Osquares, got " + text);
+		}
+		long x = -1, o = -1;
+		for (int i = 1; i < 3; i++) {
+			String field = fields[i];
+			if (field.startsWith("X") && x == -1) {
+				x = parseSquares(field.substring(1), variant);
+			} else if (field.startsWith("O") && o == -1) {
+				o = parseSquares(field.substring(1), variant);
+			} else {
+				throw new IllegalArgumentException("expected one list of squares for each side, got " + text);
+			}
+		}
+		check(variant, x, o);
+		return new Position(x, o, fields[0].equals("X"));
+	}
+
+	/**
+	 * Reads the text form of a position onto a board.
+	 * @param text  The text form.
+	 * @param board The board.
+	 * @throws IllegalArgumentException if the text is not a position of the board's variant.
+	 */
+	public static void fromText(String text, CheckerBoard board) throws IllegalArgumentException {
+		fromText(text, board.getVariant()).applyTo(board);
+	}
+
+	/**
+	 * Reads a list of squares separated by commas.
+	 * @param list      The list, which can be empty.
+	 * @param variant   The variant.
+	 * @return The mask of the squares.
+	 * @throws IllegalArgumentException if a square is not a number on the board or is a king.
+	 */
+	private static long parseSquares(String list, Variant variant) throws IllegalArgumentException {
+		long mask = 0;
+		if (list.isEmpty()) {
+			return mask;
+		}
+		for (String item : list.split(",")) {
+			if (item.startsWith("K")) {
+				throw new IllegalArgumentException("kings are not part of this game: " + item);
+			}
+			int square;
+			try {
+				square = Integer.parseInt(item.trim()) - 1;
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("not a square: " + item);
+			}
+			if (square < 0 || square >= variant.getSquares()) {
+				throw new IllegalArgumentException("square off the board: " + item);
+			}
+			mask |= 1L << square;
+		}
+		return mask;
+	}
+
+	/**
+	 * Checks that a position could be reached on a variant.
+	 * @param variant   The variant.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @throws IllegalArgumentException if the sides overlap or either has too many checkers.
+	 */
+	private static void check(Variant variant, long x, long o) throws IllegalArgumentException {
+		if ((x & o) != 0) {
+			throw new IllegalArgumentException("X and O share a square");
+		}
+		if (Long.bitCount(x) > variant.getPieceCount() || Long.bitCount(o) > variant.getPieceCount()) {
+			throw new IllegalArgumentException("more than " + variant.getPieceCount() + " checkers a side");
+		}
+	}
+
+	/**
+	 * Writes an int, low byte first.
+	 * @param out       The array.
+	 * @param offset    The offset.
+	 * @param value     The value.
+	 */
+	private static void putInt(byte[] out, int offset, int value) {
+		out[offset] = (byte) value;
+		out[offset + 1] = (byte) (value >> 8);
+		out[offset + 2] = (byte) (value >> 16);
+		out[offset + 3] = (byte) (value >> 24);
+	}
+
+	/**
+	 * Reads an int, low byte first.
+	 * @param in        The array.
+	 * @param offset    The offset.
+	 * @return The value.
+	 */
+	private static int getInt(byte[] in, int offset) {
+		return (in[offset] & 0xFF) | (in[offset + 1] & 0xFF) << 8
+				| (in[offset + 2] & 0xFF) << 16 | (in[offset + 3] & 0xFF) << 24;
+	}
+}
@@ -0,0 +1,241 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * PositionHistory records the Zobrist hashes of the positions of a game to
+ * detect draws by repetition and by lack of progress
+ *
+ * Moves are pushed and popped like a stack, so a search can push the moves of
+ * the line it is looking at on top of the game.  Each position's number of
+ * occurrences is kept in a hash table, so checking for a repetition costs the
+ * same however long the game is.  A capture or a checker moving forward can
+ * never be undone, so no position before such a move can occur again.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-22
+ */
+public class PositionHistory {
+
+	/** The number of plies without progress after which a game is drawn */
+	public static final int DEFAULT_NO_PROGRESS_LIMIT = 80;
+
+	/** The number of occurrences of a position after which a game is drawn */
+	public static final int REPETITION_LIMIT = 3;
+
+	/** The hash of the position after each ply, the start position at 0 */
+	private long[] hashes = new long[256];
+
+	/** The number of plies since the last progress, after each ply */
+	private int[] quietPlies = new int[256];
+
+	/** The number of positions recorded */
+	private int size;
+
+	/** The hashes in the occurrence table, 0 for an empty slot */
+	private long[] keys = new long[512];
+
+	/** The number of occurrences of each hash in the occurrence table */
+	private int[] counts = new int[512];
+
+	/** The number of plies without progress after which a game is drawn */
+	private final int noProgressLimit;
+
+
+	/**
+	 * Constructor
+	 * @param startHash         The hash of the starting position.
+	 * @param noProgressLimit   The number of plies without a capture or advance after which a game is drawn.
+	 */
+	public PositionHistory(long startHash, int noProgressLimit) {
+		this.noProgressLimit = noProgressLimit;
+		clear(startHash);
+	}
+
+	/**
+	 * Constructor for a history with the default no progress limit.
+	 * @param startHash The hash of the starting position.
+	 */
+	public PositionHistory(long startHash) {
+		this(startHash, DEFAULT_NO_PROGRESS_LIMIT);
+	}
+
+	/**
+	 * Forgets every position and starts again from a new position.
+	 * @param startHash The hash of the starting position.
+	 */
+	public void clear(long startHash) {
+		Arrays.fill(keys, 0);
+		Arrays.fill(counts, 0);
+		hashes[0] = startHash;
+		quietPlies[0] = 0;
+		size = 1;
+		increment(startHash);
+	}
+
+	/**
+	 * Records the position after a move.
+	 * @param hash      The hash of the new position.
+	 * @param progress  If the move captured or advanced a checker and so cannot be undone.
+	 */
+	public void push(long hash, boolean progress) {
+		if (size == hashes.length) {
+			hashes = Arrays.copyOf(hashes, size * 2);
+			quietPlies = Arrays.copyOf(quietPlies, size * 2);
+		}
+		hashes[size] = hash;
+		quietPlies[size] = progress ? 0 : quietPlies[size - 1] + 1;
+		size++;
+		increment(hash);
+	}
+
+	/**
+	 * Forgets the last position recorded, taking back a move.
+	 * @throws IllegalStateException if only the starting position is left.
+	 */
+	public void pop() throws IllegalStateException {
+		if (size == 1) {
+			throw new IllegalStateException("no move to take back");
+		}
+		size--;
+		decrement(hashes[size]);
+	}
+
+	/**
+	 * Gets the hash of the current position.
+	 * @return The hash.
+	 */
+	public long current() {
+		return hashes[size - 1];
+	}
+
+	/**
+	 * Gets the number of moves recorded.
+	 * @return The number of plies since the starting position.
+	 */
+	public int getPly() {
+		return size - 1;
+	}
+
+	/**
+	 * Gets the number of plies since the last capture or advance.
+	 * @return The number of plies.
+	 */
+	public int getQuietPlies() {
+		return quietPlies[size - 1];
+	}
+
+	/**
+	 * Gets the number of times the current position has occurred.
+	 * @return The number of occurrences, at least 1.
+	 */
+	public int getOccurrences() {
+		if (quietPlies[size - 1] < 4) {
+			return 1;		//no position can recur in fewer than 4 plies
+		}
+		return counts[find(key(hashes[size - 1]))];
+	}
+
+	/**
+	 * Checks if the current position has occurred before, which a search scores as a draw.
+	 * @return If the position is a repetition.
+	 */
+	public boolean isRepetition() {
+		return getOccurrences() > 1;
+	}
+
+	/**
+	 * Checks if the game is drawn by threefold repetition or by lack of progress.
+	 * @return If the game is drawn.
+	 */
+	public boolean isDraw() {
+		return getQuietPlies() >= noProgressLimit || getOccurrences() >= REPETITION_LIMIT;
+	}
+
+	/**
+	 * Converts a hash into a key of the occurrence table.
+	 * @param hash The hash.
+	 * @return The key, never 0 as 0 marks an empty slot.
+	 */
+	private static long key(long hash) {
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Finds the slot of a hash in the occurrence table.
+	 * @param hash The hash.
+	 * @return The slot holding the hash, or the empty slot where it belongs.
+	 */
+	private int find(long hash) {
+		int mask = keys.length - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (keys[slot] != 0 && keys[slot] != hash) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Adds an occurrence of a hash, growing the table when it is half full.
+	 * @param hash The hash.
+	 */
+	private void increment(long hash) {
+		hash = key(hash);
+		int slot = find(hash);
+		if (keys[slot] == 0) {
+			if (size * 2 > keys.length) {
+				grow();
+				slot = find(hash);
+			}
+			keys[slot] = hash;
+		}
+		counts[slot]++;
+	}
+
+	/**
+	 * Removes an occurrence of a hash, emptying its slot when none are left.
+	 * Later slots of the same run are shifted back so lookups never stop early.
+	 * @param hash The hash.
+	 */
+	private void decrement(long hash) {
+		hash = key(hash);
+		int mask = keys.length - 1;
+		int slot = find(hash);
+		if (--counts[slot] > 0) {
+			return;
+		}
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (keys[next] == 0) {
+				break;
+			}
+			int home = (int) (keys[next] ^ (keys[next] >>> 32)) & mask;
+			//move the entry back if its home is not between the hole and its slot
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				counts[slot] = counts[next];
+				slot = next;
+			}
+		}
+		keys[slot] = 0;
+		counts[slot] = 0;
+	}
+
+	/**
+	 * Doubles the size of the occurrence table.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		counts = new int[oldCounts.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,369 @@
+package core;
+
+import ui.CheckersTextConsole;
+
+/**
+ * ProofNumberSolver proves whether a position is a forced win or a forced loss
+ * for the side to move with depth-first proof-number search (df-pn)
+ *  contains a main method to solve a position from the command line
+ *
+ * Proof and disproof numbers are kept in a transposition table of fixed size
+ * set by the memory bound.  Each entry records the work spent below it.  When
+ * a node is solved the unsolved entries of its children can never matter to
+ * it again and are removed.  When the table fills up the entries with the
+ * least work are collected.  Checkers only move forward, so the game graph has
+ * no cycles.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-14
+ */
+public class ProofNumberSolver {
+
+	/** Result when the side to move has a forced win */
+	public static final int WIN = 1;
+
+	/** Result when the side to move has a forced loss */
+	public static final int LOSS = -1;
+
+	/** Result when the node limit was reached first */
+	public static final int UNKNOWN = 0;
+
+	/** An infinite proof or disproof number */
+	private static final int INFINITY = 1 << 30;
+
+	/** The number of entries in a bucket of the table */
+	private static final int BUCKET = 4;
+
+	/** The size of an entry in bytes */
+	private static final int ENTRY_BYTES = 24;
+
+	/** The deepest ply of a game, every move advances a checker */
+	private static final int MAX_PLY = 256;
+
+	/** Hashes of the table entries, 0 for an empty entry */
+	private final long[] keys;
+
+	/** Proof numbers of the side to move winning */
+	private final int[] phis;
+
+	/** Disproof numbers of the side to move winning */
+	private final int[] deltas;
+
+	/** The number of nodes searched below each entry */
+	private final long[] works;
+
+	/** The number of entries in use */
+	private int used;
+
+	/** The number of garbage collections run */
+	private int collections;
+
+	/** The moves at each ply */
+	private final int[][] moveStack = new int[MAX_PLY][Bitboards.MAX_MOVES];
+
+	/** The hashes of the children at each ply */
+	private final long[][] childStack = new long[MAX_PLY][Bitboards.MAX_MOVES];
+
+	/** The number of nodes searched by the current solve */
+	private long nodes;
+
+	/** The node limit of the current solve */
+	private long nodeLimit;
+
+	/** The winning move at the root after a proof */
+	private int bestMove;
+
+
+	/**
+	 * Constructor
+	 * @param megabytes The memory to use for the transposition table.
+	 */
+	public ProofNumberSolver(int megabytes) {
+		long entries = Math.max(BUCKET, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+		int size = Integer.highestOneBit((int) Math.min(entries, 1 << 28));
+		keys = new long[size];
+		phis = new int[size];
+		deltas = new int[size];
+		works = new long[size];
+	}
+
+	/**
+	 * Solves a position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param nodeLimit The number of nodes to search before giving up.
+	 * @return WIN, LOSS or UNKNOWN for the side to move.
+	 */
+	public int solve(int x, int o, boolean xToMove, long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+		nodes = 0;
+		bestMove = 0;
+		long hash = Zobrist.hash(x, o, xToMove);
+		search(x, o, xToMove, hash, INFINITY, INFINITY, 0);
+
+		int index = find(hash);
+		if (index < 0) return UNKNOWN;
+		if (phis[index] == 0) {
+			int[] moves = moveStack[0];
+			int count = Bitboards.generateMoves(x, o, xToMove, moves);
+			for (int i = 0; i < count; i++) {
+				int child = find(Zobrist.play(hash, moves[i], xToMove));
+				if (child >= 0 && deltas[child] == 0) {
+					bestMove = moves[i];
+					break;
+				}
+			}
+			return WIN;
+		}
+		return deltas[index] == 0 ? LOSS : UNKNOWN;
+	}
+
+	/**
+	 * Searches a node until its proof or disproof number reaches its threshold.
+	 * @param x             The mask of X checkers.
+	 * @param o             The mask of O checkers.
+	 * @param xToMove       If X is the side to move.
+	 * @param hash          The hash of the position.
+	 * @param phiLimit      The threshold of the proof number.
+	 * @param deltaLimit    The threshold of the disproof number.
+	 * @param ply           The distance from the root.
+	 */
+	private void search(int x, int o, boolean xToMove, long hash, int phiLimit, int deltaLimit, int ply) {
+		nodes++;
+		long start = nodes;
+		int[] moves = moveStack[ply];
+		int count = Bitboards.generateMoves(x, o, xToMove, moves);
+		if (count == 0) {
+			store(hash, INFINITY, 0, 1);		//no moves, the side to move has lost
+			return;
+		}
+		long[] children = childStack[ply];
+		for (int i = 0; i < count; i++) {
+			children[i] = Zobrist.play(hash, moves[i], xToMove);
+		}
+
+		int phi;
+		int delta;
+		while (true) {
+			//phi is the smallest child delta, delta the sum of child phis
+			phi = INFINITY;
+			delta = 0;
+			int best = 0;
+			int bestPhi = 0;
+			int bestDelta = INFINITY;
+			int secondDelta = INFINITY;
+			for (int i = 0; i < count; i++) {
+				int index = find(children[i]);
+				int childPhi = index < 0 ? 1 : phis[index];
+				int childDelta = index < 0 ? 1 : deltas[index];
+				phi = Math.min(phi, childDelta);
+				delta = childPhi == INFINITY || delta == INFINITY ? INFINITY : Math.min(INFINITY - 1, delta + childPhi);
+				if (childDelta < bestDelta) {
+					secondDelta = bestDelta;
+					bestDelta = childDelta;
+					bestPhi = childPhi;
+					best = i;
+				} else if (childDelta < secondDelta) {
+					secondDelta = childDelta;
+				}
+			}
+			if (phi >= phiLimit || delta >= deltaLimit || nodes >= nodeLimit) {
+				break;
+			}
+
+			int childPhiLimit = (int) Math.min(INFINITY, (long) deltaLimit - delta + bestPhi);
+			//let the child run a quarter past the second best before switching (1 + epsilon)
+			int childDeltaLimit = (int) Math.min(phiLimit, (long) secondDelta + secondDelta / 4 + 1);
+			int move = moves[best];
+			if (xToMove) {
+				search(Bitboards.moveMover(x, move), Bitboards.moveOpponent(o, move), false, children[best],
+						childPhiLimit, childDeltaLimit, ply + 1);
+			} else {
+				search(Bitboards.moveOpponent(x, move), Bitboards.moveMover(o, move), true, children[best],
+						childPhiLimit, childDeltaLimit, ply + 1);
+			}
+		}
+
+		int index = find(hash);
+		long work = (nodes - start + 1) + (index < 0 ? 0 : works[index]);
+		store(hash, phi, delta, work);
+		if (phi == 0 || delta == 0) {
+			collectChildren(children, count);
+		}
+	}
+
+	/**
+	 * Removes the unsolved children of a solved node.
+	 * @param children  The hashes of the children.
+	 * @param count     The number of children.
+	 */
+	private void collectChildren(long[] children, int count) {
+		for (int i = 0; i < count; i++) {
+			int index = find(children[i]);
+			if (index >= 0 && phis[index] != 0 && deltas[index] != 0) {
+				remove(index);
+			}
+		}
+	}
+
+	/**
+	 * Finds the table entry of a position.
+	 * @param hash The hash of the position.
+	 * @return The index of the entry, -1 if there is none.
+	 */
+	private int find(long hash) {
+		int base = (int) hash & (keys.length - BUCKET);
+		for (int i = base; i < base + BUCKET; i++) {
+			if (keys[i] == hash) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Stores the proof and disproof numbers of a position.
+	 * A full bucket replaces the entry with the least work.
+	 * @param hash  The hash of the position.
+	 * @param phi   The proof number.
+	 * @param delta The disproof number.
+	 * @param work  The number of nodes searched below the position.
+	 */
+	private void store(long hash, int phi, int delta, long work) {
+		int base = (int) hash & (keys.length - BUCKET);
+		int slot = find(hash);
+		if (slot < 0) {
+			slot = base;
+			for (int i = base; i < base + BUCKET; i++) {
+				if (keys[i] == 0) {
+					slot = i;
+					break;
+				}
+				if (works[i] < works[slot]) {
+					slot = i;
+				}
+			}
+		}
+		if (keys[slot] == 0) {
+			used++;
+		}
+		keys[slot] = hash;
+		phis[slot] = phi;
+		deltas[slot] = delta;
+		works[slot] = work;
+		if (used > keys.length - keys.length / 8) {
+			collectGarbage();
+		}
+	}
+
+	/**
+	 * Removes a table entry.
+	 * @param index The index of the entry.
+	 */
+	private void remove(int index) {
+		keys[index] = 0;
+		used--;
+	}
+
+	/**
+	 * Removes the entries with the least work until the table is at most half full.
+	 */
+	private void collectGarbage() {
+		collections++;
+		long threshold = 1;
+		while (used > keys.length / 2) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != 0 && works[i] <= threshold) {
+					remove(i);
+				}
+			}
+			threshold *= 2;
+		}
+	}
+
+	/**
+	 * Gets the winning move found by the last solve.
+	 * @return The encoded move, 0 if the position was not a win.
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * Gets the number of nodes searched by the last solve.
+	 * @return The number of nodes.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the number of garbage collections run so far.
+	 * @return The number of collections.
+	 */
+	public int getCollections() {
+		return collections;
+	}
+
+	/**
+	 * Main method to solve a position.
+	 * The position is reached by playing the given moves from the start of a game,
+	 * or from a position given in the text form of PositionCodec.
+	 * @param args	[--memory MB] [--nodes N] [--position X:X1,2:O31,32] followed by moves such as 3a-4b.
+	 */
+	public static void main(String[] args) {
+		int megabytes = 256;
+		long nodeLimit = Long.MAX_VALUE;
+		CheckerBoard board = new CheckerBoard();
+		CheckersTextConsole console = new CheckersTextConsole();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--memory") && i + 1 < args.length) {
+				megabytes = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--nodes") && i + 1 < args.length) {
+				nodeLimit = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--position") && i + 1 < args.length) {
+				try {
+					PositionCodec.fromText(args[++i], board);
+				}
+				catch (IllegalArgumentException e) {
+					System.err.println("Illegal position: " + e.getMessage());
+					return;
+				}
+			} else {
+				int[] coordinates;
+				try {
+					coordinates = console.getCoordinates(args[i]);
+				}
+				catch (IllegalArgumentException e) {
+					coordinates = new int[] {0, 0, 0, 0};
+				}
+				if (! CheckersLogic.isValid(coordinates, board)) {
+					System.err.println("Illegal move: " + args[i]);
+					return;
+				}
+				board.movePiece(coordinates);
+				board.switchTurn();
+			}
+		}
+
+		ProofNumberSolver solver = new ProofNumberSolver(megabytes);
+		boolean xToMove = Bitboards.xToMove(board);
+		long start = System.nanoTime();
+		int result = solver.solve(Bitboards.xMask(board), Bitboards.oMask(board), xToMove, nodeLimit);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		System.out.println(board);
+		System.out.println(PositionCodec.toText(board));
+		String side = xToMove ? "X" : "O";
+		if (result == WIN) {
+			System.out.println(side + " to move wins with " + Bitboards.toNotation(solver.getBestMove()));
+		} else if (result == LOSS) {
+			System.out.println(side + " to move loses");
+		} else {
+			System.out.println("Not solved within the node limit");
+		}
+		System.out.println(solver.getNodes() + " nodes, " + millis + " ms, "
+				+ solver.getCollections() + " garbage collections");
+	}
+}
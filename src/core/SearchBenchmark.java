@@ -0,0 +1,79 @@
+package core;
+
+/**
+ * SearchBenchmark counts the positions alpha-beta visits to reach a fixed depth
+ * on a standard set of positions, with and without move ordering and quiescence
+ *  contains a main method
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-01
+ */
+public class SearchBenchmark {
+
+	/** The standard positions, in the text form of PositionCodec, reached by random openings */
+	static final String[] POSITIONS = {
+		"X:X1,2,3,4,5,6,7,8,9,10,11,12:O21,22,23,24,25,26,27,28,29,30,31,32",
+		"O:X1,2,4,5,7,8,9,11,12,14,18,20:O15,17,19,21,22,23,24,25,29,30,31,32",
+		"O:X1,3,4,5,6,7,8,9,10,11,14,22:O17,18,21,24,25,27,28,29,30,31,32",
+		"O:X1,4,5,7,8,9,10,12,15,17,19:O16,18,22,23,24,25,26,27,28,29,32",
+		"X:X1,2,3,4,5,6,7,8,9,14,17:O11,19,21,23,24,25,26,27,29,30,31,32",
+		"O:X1,2,3,4,5,6,7,8,9,13,15,27:O12,18,21,22,24,25,26,28,29,30,31,32",
+		"O:X1,2,7,8,9,10,11,12,13,16,24:O6,14,19,21,23,26,28,29,30,31,32",
+		"O:X1,3,4,5,6,7,8,9,15,19,28:O10,12,21,22,23,25,27,29,30,31,32",
+		"O:X1,2,6,7,8,9,12,14,18:O15,16,19,21,23,25,26,27,30,32",
+		"O:X1,2,3,4,7,8,12,14,18,22:O6,17,23,24,25,26,28,29,30,31,32",
+		"X:X1,2,4,7,8,9,11,12,17,18,19:O10,16,22,23,24,25,28,29,30,32",
+		"O:X1,2,3,6,7,8,11,14,16,18,20,31:O9,15,21,23,24,25,26,27,28,32",
+		"O:X1,2,4,5,6,7,9,11,12,13,16,18:O15,17,20,21,23,25,26,27,28,30,31,32",
+		"O:X1,3,5,6,7,8,9,10,11,13,16,24:O14,17,19,22,25,26,27,28,29,31,32",
+		"X:X1,2,5,6,7,8,11,12,17,18,20:O9,10,15,21,22,24,25,26,27,28,29,32",
+		"O:X2,3,5,6,8,9,10,12,13,14,15:O16,19,22,23,24,25,26,28,29,30,31",
+		"X:X1,2,3,7,8,9,10,11,12,19,28:O6,16,18,21,23,26,27,29,30,31,32",
+	};
+
+	/** The depth searched by default */
+	private static final int DEFAULT_DEPTH = 10;
+
+	/** The number of buckets of the cache given to each search */
+	private static final int CACHE_BUCKETS = 1 << 16;
+
+
+	/**
+	 * Main method to run the benchmark.
+	 * @param args	[DEPTH]
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+		run("unordered", depth, false, false);		//also warms up the search
+		long unordered = run("unordered", depth, false, false);
+		long ordered = run("ordered", depth, true, false);
+		long defaults = run("ordered + quiescence", depth, true, true);
+		System.out.printf("ordering visits %.1f%% fewer positions%n", 100.0 * (unordered - ordered) / unordered);
+		System.out.printf("the default search visits %.1f%% fewer positions than unordered%n",
+				100.0 * (unordered - defaults) / unordered);
+	}
+
+	/**
+	 * Searches every standard position with a new engine and cache.
+	 * @param name          The name of the configuration.
+	 * @param depth         The depth.
+	 * @param ordering      If moves are ordered.
+	 * @param quiescence    If capture exchanges are followed.
+	 * @return The number of positions visited.
+	 */
+	private static long run(String name, int depth, boolean ordering, boolean quiescence) {
+		long nodes = 0;
+		long start = System.nanoTime();
+		for (String text : POSITIONS) {
+			PositionCodec.Position position = PositionCodec.fromText(text, Variant.ENGLISH);
+			AlphaBetaSearch search = new AlphaBetaSearch(new BatchEvaluator(EvaluationWeights.defaults()),
+					AnalysisCache.inMemory(CACHE_BUCKETS));
+			search.setOrdering(ordering);
+			search.setQuiescence(quiescence);
+			nodes += search.search((int) position.x, (int) position.o, position.xToMove, depth).getNodes();
+		}
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		System.out.printf("%-22s depth %d: %,d positions, %d ms%n", name, depth, nodes, millis);
+		return nodes;
+	}
+}
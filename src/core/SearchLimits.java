@@ -0,0 +1,92 @@
+package core;
+
+/**
+ * SearchLimits contains the depth, node and time budget of a search
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-10
+ */
+public class SearchLimits {
+
+	/** The deepest iteration to search */
+	private final int depth;
+
+	/** The number of positions (or playouts) to visit before stopping */
+	private final long nodes;
+
+	/** The time to search in milliseconds */
+	private final long millis;
+
+
+	/**
+	 * Constructor
+	 * @param depth     The deepest iteration to search.
+	 * @param nodes     The number of positions to visit.
+	 * @param millis    The time to search in milliseconds.
+	 */
+	public SearchLimits(int depth, long nodes, long millis) {
+		this.depth = depth;
+		this.nodes = nodes;
+		this.millis = millis;
+	}
+
+	/**
+	 * Creates limits which only bound the depth.
+	 * @param depth The deepest iteration to search.
+	 * @return The limits.
+	 */
+	public static SearchLimits depth(int depth) {
+		return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates limits which only bound the number of positions visited.
+	 * @param nodes The number of positions to visit.
+	 * @return The limits.
+	 */
+	public static SearchLimits nodes(long nodes) {
+		return new SearchLimits(AlphaBetaSearch.MAX_PLY - 1, nodes, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates limits which only bound the time taken.
+	 * @param millis The time to search in milliseconds.
+	 * @return The limits.
+	 */
+	public static SearchLimits time(long millis) {
+		return new SearchLimits(AlphaBetaSearch.MAX_PLY - 1, Long.MAX_VALUE, millis);
+	}
+
+	/**
+	 * Gets the deepest iteration to search.
+	 * @return The depth.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Gets the number of positions to visit.
+	 * @return The number of positions, Long.MAX_VALUE if unbounded.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the time to search.
+	 * @return The time in milliseconds, Long.MAX_VALUE if unbounded.
+	 */
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * Gets the time at which a search started now must stop.
+	 * @param start The start time from System.nanoTime().
+	 * @return The deadline from System.nanoTime(), Long.MAX_VALUE if unbounded.
+	 */
+	long deadline(long start) {
+		return millis == Long.MAX_VALUE ? Long.MAX_VALUE : start + millis * 1_000_000L;
+	}
+}
@@ -0,0 +1,20 @@
+package core;
+
+/**
+ * SearchListener is told about each iteration an AlphaBetaSearch completes
+ *
+ * Listeners are called on the searching thread, between iterations, and the
+ * search waits for them to return.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-02
+ */
+public interface SearchListener {
+
+	/**
+	 * Called after an iteration has completed.
+	 * @param result    The result of the iteration, with the positions visited and time taken by the search so far.
+	 * @param line      The principal variation, the moves both sides are expected to play, starting with the best move.
+	 */
+	void iterationCompleted(SearchResult result, int[] line);
+}
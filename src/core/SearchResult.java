@@ -0,0 +1,91 @@
+package core;
+
+/**
+ * SearchResult contains the outcome of a search
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-07
+ */
+public class SearchResult {
+
+	/** The best move found, 0 if the side to move has no moves */
+	private final int bestMove;
+
+	/** The score of the best move from the point of view of the side to move */
+	private final int score;
+
+	/** The depth completed */
+	private final int depth;
+
+	/** The number of positions visited */
+	private final long nodes;
+
+	/** The time taken in nanoseconds */
+	private final long nanos;
+
+
+	/**
+	 * Constructor
+	 * @param bestMove  The best move.
+	 * @param score     The score of the best move.
+	 * @param depth     The depth completed.
+	 * @param nodes     The number of positions visited.
+	 * @param nanos     The time taken in nanoseconds.
+	 */
+	public SearchResult(int bestMove, int score, int depth, long nodes, long nanos) {
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.nanos = nanos;
+	}
+
+	/**
+	 * Gets the best move.
+	 * @return The encoded move, 0 if there is none.
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * Gets the score of the best move.
+	 * @return The score from the point of view of the side to move.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Gets the depth completed.
+	 * @return The depth.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Gets the number of positions visited.
+	 * @return The number of positions.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the time taken.
+	 * @return The time in nanoseconds.
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Creates a String representation of the result.
+	 * @return A String representation of the result.
+	 */
+	@Override
+	public String toString() {
+		return "depth " + depth + " score " + score + " nodes " + nodes + " time " + (nanos / 1_000_000) + "ms";
+	}
+}
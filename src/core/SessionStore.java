@@ -0,0 +1,441 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SessionStore keeps the open games of a server, hibernating the ones that
+ * have been idle so most of them take no heap at all
+ *
+ * A live session holds a whole CheckerBoard and possibly a computer player.
+ * When it has been idle for the timeout it is packed into a RECORD byte slot
+ * of an off-heap slab, and its board and player go back to a GamePool for
+ * other games.  The slab is an open-addressed table keyed by session id:
+ *   [id:8][position:PositionCodec.BYTES][flags:1][depth:1][unused:1]
+ * The next get() of a hibernated session unpacks it onto a board from the
+ * pool, with a player from the pool given the same search depth, so callers
+ * never see the difference.  A session whose player has any other setting
+ * changed, such as its engine, evaluator, limits, scheduler or draw history,
+ * stays live, since the record has no room for it.
+ *
+ * Boards are taken from and returned to the pool, so observers added to a
+ * session's board are removed when it is hibernated or closed, and are never
+ * told of the reset or of the moves of whichever game gets the board next.
+ * Only 8x8 games are hibernated.  Every method is synchronized.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-03-04
+ */
+public class SessionStore {
+
+	/** The size of a slot of the slab in bytes */
+	private static final int RECORD = 24;
+
+	/** Flag of a slot holding a session */
+	private static final int USED = 1;
+
+	/** Flag of a session with a computer player */
+	private static final int COMPUTER = 2;
+
+	/** The most slots the slab can have while fitting one buffer */
+	private static final int MAX_SLOTS = Integer.highestOneBit(Integer.MAX_VALUE / RECORD);
+
+	/** The pool the boards and players of sessions come from */
+	private final GamePool pool;
+
+	/** How long a session can be idle before it is hibernated in ms */
+	private final long idleMillis;
+
+	/** The live sessions by id */
+	private final Map<Long, GameSession> live = new HashMap<>();
+
+	/** The hibernated sessions */
+	private ByteBuffer slab;
+
+	/** The number of slots minus one */
+	private int mask;
+
+	/** The number of hibernated sessions */
+	private int hibernated;
+
+	/** Scratch array for packing a position */
+	private final byte[] packed = new byte[PositionCodec.BYTES];
+
+
+	/**
+	 * Constructor
+	 * @param pool          The pool boards and players are taken from and returned to.
+	 * @param idleMillis    How long a session can be idle before it is hibernated in ms.
+	 * @param capacity      The number of hibernated sessions to make room for at first.
+	 */
+	public SessionStore(GamePool pool, long idleMillis, int capacity) {
+		this.pool = pool;
+		this.idleMillis = idleMillis;
+		int slots = Integer.highestOneBit(Math.max(16, Math.min(MAX_SLOTS / 2, capacity)) - 1) << 2;
+		slab = ByteBuffer.allocateDirect(slots * RECORD);
+		mask = slots - 1;
+	}
+
+	/**
+	 * Opens a new game.
+	 * @param id            The id of the session.
+	 * @param vsComputer    If the game is against the computer.
+	 * @param now           The current time in ms.
+	 * @return The session.
+	 * @throws IllegalArgumentException if a session with the id is already open.
+	 */
+	public synchronized GameSession open(long id, boolean vsComputer, long now) throws IllegalArgumentException {
+		if (live.containsKey(id) || find(id) >= 0) {
+			throw new IllegalArgumentException("session already open: " + id);
+		}
+		CheckerBoard board = pool.acquireBoard();
+		GameSession session = new GameSession(id, board, vsComputer ? pool.acquirePlayer(board) : null, now);
+		live.put(id, session);
+		return session;
+	}
+
+	/**
+	 * Gets a session to play a move, waking it if it was hibernated.
+	 * @param id    The id of the session.
+	 * @param now   The current time in ms.
+	 * @return The session, null if there is no such session.
+	 */
+	public synchronized GameSession get(long id, long now) {
+		GameSession session = live.get(id);
+		if (session == null) {
+			int slot = find(id);
+			if (slot < 0) {
+				return null;
+			}
+			session = wake(id, slot, now);
+			live.put(id, session);
+		}
+		session.touch(now);
+		return session;
+	}
+
+	/**
+	 * Ends a session, returning its board and player to the pool.
+	 * @param id The id of the session.
+	 * @return If there was such a session.
+	 */
+	public synchronized boolean close(long id) {
+		GameSession session = live.remove(id);
+		if (session != null) {
+			release(session);
+			return true;
+		}
+		int slot = find(id);
+		if (slot < 0) {
+			return false;
+		}
+		remove(slot);
+		return true;
+	}
+
+	/**
+	 * Hibernates every live session idle for longer than the timeout.
+	 * @param now The current time in ms.
+	 * @return The number of sessions hibernated.
+	 */
+	public synchronized int hibernateIdle(long now) {
+		int count = 0;
+		Iterator<GameSession> sessions = live.values().iterator();
+		while (sessions.hasNext()) {
+			GameSession session = sessions.next();
+			if (now - session.getLastActive() > idleMillis && canHibernate(session)) {
+				hibernate(session);
+				sessions.remove();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if a session can be packed into a slot and woken unchanged.
+	 * @param session The session.
+	 * @return If the game is 8x8 and any player differs from a new one only in its search depth.
+	 */
+	private static boolean canHibernate(GameSession session) {
+		CheckersComputerPlayer computer = session.getComputer();
+		return session.getBoard().getVariant() == Variant.ENGLISH
+				&& (computer == null || computer.hasDefaultSettings());
+	}
+
+	/**
+	 * Packs a session into the slab and releases its board and player.
+	 * @param session The session.
+	 */
+	private void hibernate(GameSession session) {
+		if (hibernated + 1 > (mask + 1) / 2) {
+			grow();
+		}
+		PositionCodec.encode(session.getBoard(), packed, 0);
+		int slot = (int) spread(session.getId()) & mask;
+		while ((slab.get(slot * RECORD + 8 + PositionCodec.BYTES) & USED) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		int offset = slot * RECORD;
+		slab.putLong(offset, session.getId());
+		slab.put(offset + 8, packed);
+		slab.put(offset + 8 + PositionCodec.BYTES, (byte) (USED | (session.getComputer() != null ? COMPUTER : 0)));
+		slab.put(offset + 9 + PositionCodec.BYTES,
+				(byte) (session.getComputer() != null ? session.getComputer().getSearchDepth() : 0));
+		hibernated++;
+		release(session);
+	}
+
+	/**
+	 * Unpacks a hibernated session onto a board from the pool.
+	 * @param id    The id of the session.
+	 * @param slot  The slot holding it.
+	 * @param now   The current time in ms.
+	 * @return The session.
+	 */
+	private GameSession wake(long id, int slot, long now) {
+		int offset = slot * RECORD;
+		slab.get(offset + 8, packed);
+		boolean vsComputer = (slab.get(offset + 8 + PositionCodec.BYTES) & COMPUTER) != 0;
+		int depth = slab.get(offset + 9 + PositionCodec.BYTES);
+		remove(slot);
+		CheckerBoard board = pool.acquireBoard();
+		PositionCodec.decode(packed, 0, board);
+		CheckersComputerPlayer computer = null;
+		if (vsComputer) {
+			computer = pool.acquirePlayer(board);
+			computer.setSearchDepth(depth);
+		}
+		return new GameSession(id, board, computer, now);
+	}
+
+	/**
+	 * Returns the board and player of a session to the pool.
+	 * @param session The session.
+	 */
+	private void release(GameSession session) {
+		session.getBoard().clearObservers();
+		if (session.getComputer() != null) {
+			pool.releasePlayer(session.getComputer());
+		}
+		pool.releaseBoard(session.getBoard());
+	}
+
+	/**
+	 * Finds the slot of a hibernated session.
+	 * @param id The id of the session.
+	 * @return The slot, -1 if the session is not hibernated.
+	 */
+	private int find(long id) {
+		int slot = (int) spread(id) & mask;
+		while ((slab.get(slot * RECORD + 8 + PositionCodec.BYTES) & USED) != 0) {
+			if (slab.getLong(slot * RECORD) == id) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Empties a slot, moving later sessions back so no probe sequence is broken.
+	 * @param slot The slot.
+	 */
+	private void remove(int slot) {
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while ((slab.get(next * RECORD + 8 + PositionCodec.BYTES) & USED) != 0) {
+			int home = (int) spread(slab.getLong(next * RECORD)) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {		//home is at or before the hole
+				copySlot(next, hole);
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		slab.put(hole * RECORD + 8 + PositionCodec.BYTES, (byte) 0);
+		hibernated--;
+	}
+
+	/**
+	 * Copies a slot over another.
+	 * @param from  The slot copied.
+	 * @param to    The slot overwritten.
+	 */
+	private void copySlot(int from, int to) {
+		for (int i = 0; i < RECORD; i += 8) {
+			slab.putLong(to * RECORD + i, slab.getLong(from * RECORD + i));
+		}
+	}
+
+	/**
+	 * Doubles the slab, moving every hibernated session to its new slot.
+	 * @throws IllegalStateException if the slab cannot grow any more.
+	 */
+	private void grow() throws IllegalStateException {
+		int slots = (mask + 1) * 2;
+		if (slots > MAX_SLOTS) {
+			throw new IllegalStateException("too many hibernated sessions");
+		}
+		ByteBuffer old = slab;
+		int oldSlots = mask + 1;
+		slab = ByteBuffer.allocateDirect(slots * RECORD);
+		mask = slots - 1;
+		for (int i = 0; i < oldSlots; i++) {
+			if ((old.get(i * RECORD + 8 + PositionCodec.BYTES) & USED) == 0) continue;
+			int slot = (int) spread(old.getLong(i * RECORD)) & mask;
+			while ((slab.get(slot * RECORD + 8 + PositionCodec.BYTES) & USED) != 0) {
+				slot = (slot + 1) & mask;
+			}
+			for (int j = 0; j < RECORD; j += 8) {
+				slab.putLong(slot * RECORD + j, old.getLong(i * RECORD + j));
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of an id so consecutive ids land far apart.
+	 * @param id The id.
+	 * @return The spread id.
+	 */
+	private static long spread(long id) {
+		long z = id * 0x9E3779B97F4A7C15L;
+		return z ^ (z >>> 32);
+	}
+
+	/**
+	 * Gets the number of live sessions.
+	 * @return The number of sessions.
+	 */
+	public synchronized int getLiveCount() {
+		return live.size();
+	}
+
+	/**
+	 * Gets the number of hibernated sessions.
+	 * @return The number of sessions.
+	 */
+	public synchronized int getHibernatedCount() {
+		return hibernated;
+	}
+
+	/**
+	 * Gets the size of the off-heap slab.
+	 * @return The size in bytes.
+	 */
+	public synchronized long getSlabBytes() {
+		return slab.capacity();
+	}
+
+	/**
+	 * Main method to measure the heap taken by live and hibernated sessions.
+	 * @param args	[SESSIONS]
+	 */
+	public static void main(String[] args) {
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		SessionStore store = new SessionStore(new GamePool(1), 60_000, sessions);
+		long baseline = usedHeap();
+		List<String> expected = new ArrayList<>();
+		int[] moves = new int[Bitboards.MAX_MOVES];
+		for (int i = 0; i < sessions; i++) {
+			CheckerBoard board = store.open(i, false, 0).getBoard();
+			for (int ply = 0; ply < i % 7; ply++) {		//a few moves, so the positions differ
+				int count = Bitboards.generateMoves(Bitboards.xMask(board), Bitboards.oMask(board),
+						Bitboards.xToMove(board), moves);
+				board.movePiece(Bitboards.toCoordinates(moves[(i + ply) % count]));
+				board.switchTurn();
+			}
+			if (i < 1000) {
+				expected.add(PositionCodec.toText(board));
+			}
+		}
+		long liveHeap = usedHeap() - baseline;
+		store.hibernateIdle(120_000);
+		long hibernatedHeap = usedHeap() - baseline;
+		System.out.printf("%d live sessions: %d bytes of heap each%n", sessions, liveHeap / sessions);
+		System.out.printf("%d hibernated sessions: %d bytes of heap and %d bytes off-heap each%n",
+				store.getHibernatedCount(), Math.max(0, hibernatedHeap) / sessions, store.getSlabBytes() / sessions);
+		for (int i = 0; i < expected.size(); i++) {
+			String position = PositionCodec.toText(store.get(i, 180_000).getBoard());
+			if (! position.equals(expected.get(i))) {
+				System.err.println("Session " + i + " woke as " + position + " instead of " + expected.get(i));
+				System.exit(1);
+			}
+		}
+		System.out.println(expected.size() + " sessions woken with their positions");
+		checkObservers(store);
+		checkPlayers(store);
+	}
+
+	/**
+	 * Checks that a player's search depth survives hibernation, and that a
+	 * session whose player has settings the record cannot hold stays live.
+	 * @param store The store, whose sessions are all live.
+	 */
+	private static void checkPlayers(SessionStore store) {
+		store.open(-20, true, 0).getComputer().setSearchDepth(3);
+		CheckersComputerPlayer timed = store.open(-21, true, 0).getComputer();
+		timed.setLimits(SearchLimits.time(50));
+		int before = store.getHibernatedCount();
+		store.hibernateIdle(Long.MAX_VALUE);
+		if (store.getHibernatedCount() != before + 1) {
+			System.err.println("A session whose player has a time limit was hibernated");
+			System.exit(1);
+		}
+		int depth = store.get(-20, Long.MAX_VALUE).getComputer().getSearchDepth();
+		if (depth != 3 || store.get(-21, Long.MAX_VALUE).getComputer() != timed) {
+			System.err.println("A player woke with depth " + depth + " instead of 3, or lost its time limit");
+			System.exit(1);
+		}
+		System.out.println("players keep their settings through hibernation");
+	}
+
+	/**
+	 * Checks that an observer of a session's board hears nothing once the session hibernates,
+	 * neither the board being reset nor the moves of the sessions that reuse it.
+	 * @param store The store, whose sessions are all live.
+	 */
+	private static void checkObservers(SessionStore store) {
+		long id = -1;
+		CheckerBoard board = store.open(id, false, 0).getBoard();
+		int[] heard = new int[1];
+		board.addObserver(new BoardObserver() {
+			@Override
+			public void pieceMoved(int fromRow, int fromColumn, int toRow, int toColumn, boolean captured) {
+				heard[0]++;
+			}
+
+			@Override
+			public void boardReset() {
+				heard[0]++;
+			}
+		});
+		board.movePiece(new int[] {3, 1, 4, 2});
+		board.switchTurn();
+		store.hibernateIdle(Long.MAX_VALUE);
+		for (long next = -2; next > -10; next--) {		//later sessions may be given the same board
+			store.open(next, false, Long.MAX_VALUE).getBoard().movePiece(new int[] {3, 1, 4, 2});
+		}
+		store.get(id, Long.MAX_VALUE).getBoard().movePiece(new int[] {6, 2, 5, 1});
+		if (heard[0] != 1) {
+			System.err.println("An observer of a hibernated session heard " + (heard[0] - 1) + " later changes");
+			System.exit(1);
+		}
+		System.out.println("observers do not follow boards out of hibernated sessions");
+	}
+
+	/**
+	 * Measures the heap in use after collecting garbage.
+	 * @return The heap in use in bytes.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
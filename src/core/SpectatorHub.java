@@ -0,0 +1,378 @@
+package core;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpectatorHub broadcasts the moves of one game to any number of spectators
+ *
+ * The game thread only appends each move to a ring buffer and never waits.
+ * A dispatcher, run periodically on a shared scheduler, sends each spectator
+ * the moves it has not seen in one batch.  A spectator which cannot accept a
+ * batch, or falls so far behind that its moves have been overwritten, is sent
+ * a snapshot of the whole position once it can accept again.
+ *
+ * Frames are sent as bytes.  A move is 2 bytes: the starting square in bits
+ * 0-4, the landing square in bits 5-9 and bit 10 set for a jump.  The code
+ * RESET means the board was reset to the starting position.  When the board
+ * is set to any other position every spectator is sent a snapshot instead.
+ *   MOVES     [1][first sequence number:4][count:1][move:2]...
+ *   SNAPSHOT  [2][sequence number:4][position:PositionCodec.BYTES]
+ * A snapshot's sequence number is the number of the next move to be sent.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-26
+ */
+public class SpectatorHub implements BoardObserver {
+
+	/**
+	 * Spectator receives the frames of a game.
+	 */
+	public interface Spectator {
+
+		/**
+		 * Offers a frame without waiting.
+		 * The array is reused after the call returns, so it must be copied to be kept.
+		 * @param frame     The frame.
+		 * @param length    The length of the frame.
+		 * @return If the frame was accepted, false if the spectator is full.
+		 */
+		boolean offer(byte[] frame, int length);
+	}
+
+	/** Frame type of a batch of moves */
+	public static final byte MOVES = 1;
+
+	/** Frame type of a snapshot */
+	public static final byte SNAPSHOT = 2;
+
+	/** Move code recorded when the board is reset */
+	public static final int RESET = 0x7FF;
+
+	/** Move code recorded when the board is set to a position, never sent in a batch */
+	private static final int POSITION = 0x7FE;
+
+	/** The largest number of moves in one frame */
+	private static final int MAX_BATCH = 64;
+
+	/** Move codes, indexed by sequence number */
+	private final short[] codes;
+
+	/** X masks after each move */
+	private final int[] xs;
+
+	/** O masks after each move */
+	private final int[] os;
+
+	/** Side to move after each move */
+	private final boolean[] sides;
+
+	/** The ring buffer size minus one */
+	private final int mask;
+
+	/** The number of moves appended, written only by the game thread */
+	private volatile long published;
+
+	/** The number of moves being appended, counted before an entry is overwritten */
+	private volatile long claimed;
+
+	/** The position kept by the game thread */
+	private int x;
+
+	/** The position kept by the game thread */
+	private int o;
+
+	/** The side to move kept by the game thread */
+	private boolean xToMove;
+
+	/** The spectators */
+	private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	/** Frame of moves shared by every spectator at the same point */
+	private final byte[] movesFrame = new byte[6 + 2 * MAX_BATCH];
+
+	/** Frame of a snapshot */
+	private final byte[] snapshotFrame = new byte[5 + PositionCodec.BYTES];
+
+	/** The board broadcast */
+	private final CheckerBoard board;
+
+	/** The dispatcher task, null when not started */
+	private ScheduledFuture<?> task;
+
+
+	/**
+	 * Subscription tracks how much of the game a spectator has seen.
+	 */
+	private static class Subscription {
+
+		/** The spectator */
+		final Spectator spectator;
+
+		/** The sequence number of the next move to send */
+		long cursor;
+
+		/** If the spectator must be sent a snapshot next */
+		boolean needsSnapshot = true;
+
+		/**
+		 * Constructor
+		 * @param spectator The spectator.
+		 */
+		Subscription(Spectator spectator) {
+			this.spectator = spectator;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param board     The board to broadcast, which the hub observes, an 8x8 board.
+	 * @param capacity  The number of moves kept for spectators which fall behind, rounded up to a power of two.
+	 */
+	public SpectatorHub(CheckerBoard board, int capacity) {
+		if (board.getVariant() != Variant.ENGLISH) {
+			throw new IllegalArgumentException("only 8x8 boards can be broadcast: " + board.getVariant());
+		}
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		codes = new short[size];
+		xs = new int[size];
+		os = new int[size];
+		sides = new boolean[size];
+		mask = size - 1;
+		this.board = board;
+		x = Bitboards.xMask(board);
+		o = Bitboards.oMask(board);
+		xToMove = Bitboards.xToMove(board);
+		append(RESET);
+		board.addObserver(this);
+	}
+
+	/**
+	 * Records a move, called on the game thread.
+	 * @param fromRow       The starting row.
+	 * @param fromColumn    The starting column.
+	 * @param toRow         The finishing row.
+	 * @param toColumn      The finishing column.
+	 * @param captured      If the move captured a piece.
+	 */
+	@Override
+	public void pieceMoved(int fromRow, int fromColumn, int toRow, int toColumn, boolean captured) {
+		int from = Bitboards.square(fromRow, fromColumn);
+		int to = Bitboards.square(toRow, toColumn);
+		int over = captured ? Bitboards.square((fromRow + toRow) / 2, (fromColumn + toColumn) / 2) : -1;
+		int move = Bitboards.encode(from, to, over);
+		if ((x & (1 << from)) != 0) {
+			x = Bitboards.moveMover(x, move);
+			o = Bitboards.moveOpponent(o, move);
+			xToMove = false;
+		} else {
+			o = Bitboards.moveMover(o, move);
+			x = Bitboards.moveOpponent(x, move);
+			xToMove = true;
+		}
+		append(from | (to << 5) | (captured ? 1 << 10 : 0));
+	}
+
+	/**
+	 * Records a reset, called on the game thread.
+	 */
+	@Override
+	public void boardReset() {
+		x = Bitboards.START_X;
+		o = Bitboards.START_O;
+		xToMove = true;
+		append(RESET);
+	}
+
+	/**
+	 * Records a new position, called on the game thread.
+	 */
+	@Override
+	public void positionSet() {
+		x = Bitboards.xMask(board);
+		o = Bitboards.oMask(board);
+		xToMove = Bitboards.xToMove(board);
+		append(POSITION);
+	}
+
+	/**
+	 * Appends a move code and the position after it to the ring buffer.
+	 * @param code The move code.
+	 */
+	private void append(int code) {
+		long sequence = published;
+		claimed = sequence + 1;
+		VarHandle.storeStoreFence();		//the dispatcher sees the claim before the entry changes
+		int index = (int) sequence & mask;
+		codes[index] = (short) code;
+		xs[index] = x;
+		os[index] = o;
+		sides[index] = xToMove;
+		published = sequence + 1;		//publishes the entry to the dispatcher
+	}
+
+	/**
+	 * Adds a spectator, who is sent a snapshot first.
+	 * @param spectator The spectator.
+	 */
+	public void subscribe(Spectator spectator) {
+		subscriptions.add(new Subscription(spectator));
+	}
+
+	/**
+	 * Removes a spectator.
+	 * @param spectator The spectator.
+	 */
+	public void unsubscribe(Spectator spectator) {
+		subscriptions.removeIf(subscription -> subscription.spectator == spectator);
+	}
+
+	/**
+	 * Gets the number of spectators.
+	 * @return The number of spectators.
+	 */
+	public int getSpectatorCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * Runs the dispatcher periodically, batching the moves made between runs.
+	 * @param scheduler The scheduler, which can be shared by many hubs.
+	 * @param period    The time between runs in milliseconds.
+	 */
+	public synchronized void start(ScheduledExecutorService scheduler, long period) {
+		if (task == null) {
+			task = scheduler.scheduleWithFixedDelay(this::dispatch, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops running the dispatcher.
+	 */
+	public synchronized void stop() {
+		if (task != null) {
+			task.cancel(false);
+			task = null;
+		}
+	}
+
+	/**
+	 * Sends every spectator the moves it has not seen, or a snapshot if it needs one.
+	 */
+	public synchronized void dispatch() {
+		long end = published;
+		long framedFrom = -1;
+		int framedLength = 0;
+		for (Subscription subscription : subscriptions) {
+			if (subscription.cursor == end && ! subscription.needsSnapshot) {
+				continue;
+			}
+			if (subscription.needsSnapshot || end - subscription.cursor > mask
+					|| codes[(int) subscription.cursor & mask] == POSITION) {
+				int length = buildSnapshot(end);
+				if (length > 0 && subscription.spectator.offer(snapshotFrame, length)) {
+					subscription.cursor = end;
+					subscription.needsSnapshot = false;
+				} else {
+					subscription.needsSnapshot = true;
+				}
+				continue;
+			}
+			if (subscription.cursor != framedFrom) {
+				framedFrom = subscription.cursor;
+				framedLength = buildMoves(framedFrom, end);
+			}
+			if (framedLength > 0 && subscription.spectator.offer(movesFrame, framedLength)) {
+				subscription.cursor += movesFrame[5];
+			} else {
+				subscription.needsSnapshot = true;		//fell behind, resync when it can accept again
+			}
+		}
+	}
+
+	/**
+	 * Builds a frame of the moves from a sequence number.
+	 * @param from  The sequence number of the first move.
+	 * @param end   The number of moves published.
+	 * @return The length of the frame, 0 if the moves have been overwritten.
+	 */
+	private int buildMoves(long from, long end) {
+		int limit = (int) Math.min(MAX_BATCH, end - from);
+		int count = 0;
+		movesFrame[0] = MOVES;
+		putInt(movesFrame, 1, (int) from);
+		while (count < limit) {
+			short code = codes[(int) (from + count) & mask];
+			if (code == POSITION) {
+				break;		//the spectator is sent a snapshot next time
+			}
+			movesFrame[6 + 2 * count] = (byte) code;
+			movesFrame[7 + 2 * count] = (byte) (code >> 8);
+			count++;
+		}
+		movesFrame[5] = (byte) count;
+		VarHandle.loadLoadFence();		//the entries are read before the claim is checked
+		if (claimed - from > mask) {
+			return 0;		//overwritten while reading
+		}
+		return 6 + 2 * count;
+	}
+
+	/**
+	 * Builds a snapshot frame of the position after a number of moves.
+	 * @param end The number of moves published.
+	 * @return The length of the frame, 0 if the position has been overwritten.
+	 */
+	private int buildSnapshot(long end) {
+		int index = (int) (end - 1) & mask;
+		snapshotFrame[0] = SNAPSHOT;
+		putInt(snapshotFrame, 1, (int) end);
+		PositionCodec.encode(xs[index], os[index], sides[index], snapshotFrame, 5);
+		VarHandle.loadLoadFence();		//the entry is read before the claim is checked
+		if (claimed - (end - 1) > mask) {
+			return 0;		//overwritten while reading
+		}
+		return snapshotFrame.length;
+	}
+
+	/**
+	 * Writes an int into a frame, low byte first.
+	 * @param frame     The frame.
+	 * @param offset    The offset.
+	 * @param value     The value.
+	 */
+	private static void putInt(byte[] frame, int offset, int value) {
+		frame[offset] = (byte) value;
+		frame[offset + 1] = (byte) (value >> 8);
+		frame[offset + 2] = (byte) (value >> 16);
+		frame[offset + 3] = (byte) (value >> 24);
+	}
+
+	/**
+	 * Converts a move into its 2 byte move code.
+	 * @param move The encoded move.
+	 * @return The move code.
+	 */
+	public static int encodeMove(int move) {
+		return Bitboards.from(move) | (Bitboards.to(move) << 5) | (Bitboards.isJump(move) ? 1 << 10 : 0);
+	}
+
+	/**
+	 * Converts a 2 byte move code back into a move.
+	 * @param code The move code, not RESET.
+	 * @return The encoded move.
+	 */
+	public static int decodeMove(int code) {
+		int from = code & 31;
+		int to = (code >> 5) & 31;
+		if ((code & (1 << 10)) == 0) {
+			return Bitboards.encode(from, to, -1);
+		}
+		int over = Bitboards.square((Bitboards.row(from) + Bitboards.row(to)) / 2,
+				(Bitboards.column(from) + Bitboards.column(to)) / 2);
+		return Bitboards.encode(from, to, over);
+	}
+}
@@ -0,0 +1,203 @@
+package core;
+
+/**
+ * Variant describes the size of a board and how many checkers each side starts with,
+ * with the masks and shifts its move generation needs, built once per variant
+ *
+ * Playable squares are the dark squares, where row + column is even.  They are
+ * numbered from 0, size / 2 to a row, starting on row 1, so the squares of
+ * ENGLISH are numbered the same way as in Bitboards.  Every variant is played
+ * with the rules of this game: checkers move and jump forward only, one jump a
+ * turn, and a side with no move left has lost.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-25
+ */
+public final class Variant {
+
+	/** 8x8 board with 12 checkers a side */
+	public static final Variant ENGLISH = new Variant("english", 8, 3);
+
+	/** 10x10 board with 20 checkers a side, played with the rules of this game, not those of international draughts */
+	public static final Variant TEN_BY_TEN = new Variant("10x10", 10, 4);
+
+	/** The name of the variant */
+	private final String name;
+
+	/** The number of rows and columns */
+	private final int size;
+
+	/** The number of rows each side fills at the start */
+	private final int pieceRows;
+
+	/** The number of playable squares */
+	private final int squares;
+
+	/** The number of playable squares in a row, the shift of a step straight up a diagonal */
+	final int half;
+
+	/** Mask of every playable square */
+	final long board;
+
+	/** Mask of the squares on rows 1, 3, 5... */
+	final long oddRows;
+
+	/** Mask of the squares on rows 2, 4, 6... */
+	final long evenRows;
+
+	/** Mask of the squares in column a */
+	final long leftEdge;
+
+	/** Mask of the squares in the last column */
+	final long rightEdge;
+
+	/** Mask of each row, index 0 is row 1 */
+	final long[] rows;
+
+	/** Mask of the X checkers at the start of a game */
+	final long startX;
+
+	/** Mask of the O checkers at the start of a game */
+	final long startO;
+
+
+	/**
+	 * Constructor, builds the tables.
+	 * @param name      The name.
+	 * @param size      The number of rows and columns, even and at most 10 so the squares fit a long.
+	 * @param pieceRows The number of rows each side fills at the start.
+	 */
+	private Variant(String name, int size, int pieceRows) {
+		this.name = name;
+		this.size = size;
+		this.pieceRows = pieceRows;
+		squares = size * size / 2;
+		half = size / 2;
+		rows = new long[size];
+		long odd = 0, even = 0, left = 0, right = 0, x = 0, o = 0;
+		for (int s = 0; s < squares; s++) {
+			int row = row(s);
+			int column = column(s);
+			long bit = 1L << s;
+			rows[row - 1] |= bit;
+			if ((row & 1) == 1) odd |= bit; else even |= bit;
+			if (column == 1) left |= bit;
+			if (column == size) right |= bit;
+			if (row <= pieceRows) {
+				x |= bit;
+			} else if (row > size - pieceRows) {
+				o |= bit;
+			}
+		}
+		board = squares == 64 ? -1L : (1L << squares) - 1;
+		oddRows = odd;
+		evenRows = even;
+		leftEdge = left;
+		rightEdge = right;
+		startX = x;
+		startO = o;
+	}
+
+	/**
+	 * Finds a variant by name.
+	 * @param name The name.
+	 * @return The variant.
+	 * @throws IllegalArgumentException if there is no such variant.
+	 */
+	public static Variant forName(String name) throws IllegalArgumentException {
+		if (name.equalsIgnoreCase(ENGLISH.name)) return ENGLISH;
+		if (name.equalsIgnoreCase(TEN_BY_TEN.name)) return TEN_BY_TEN;
+		throw new IllegalArgumentException("unknown variant: " + name);
+	}
+
+	/**
+	 * Checks if a coordinate is on the board.
+	 * @param row       The row.
+	 * @param column    The column.
+	 * @return If the coordinate is on the board.
+	 */
+	public boolean onBoard(int row, int column) {
+		return row >= 1 && row <= size && column >= 1 && column <= size;
+	}
+
+	/**
+	 * Gets the playable square of a coordinate.
+	 * @param row       The row.
+	 * @param column    The column.
+	 * @return The square, -1 if the coordinate is off the board or not playable.
+	 */
+	public int square(int row, int column) {
+		if (! onBoard(row, column) || ((row + column) & 1) != 0) {
+			return -1;
+		}
+		return (row - 1) * (size / 2) + (column - 1) / 2;
+	}
+
+	/**
+	 * Gets the row of a square.
+	 * @param square The square.
+	 * @return The row, 1 to size.
+	 */
+	public int row(int square) {
+		return square / (size / 2) + 1;
+	}
+
+	/**
+	 * Gets the column of a square.
+	 * @param square The square.
+	 * @return The column, 1 to size.
+	 */
+	public int column(int square) {
+		int row = row(square);
+		return (square % (size / 2)) * 2 + ((row & 1) ^ 1) + 1;
+	}
+
+	/**
+	 * Gets the name of the variant.
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the number of rows and columns.
+	 * @return The size of the board.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of rows each side fills at the start.
+	 * @return The number of rows.
+	 */
+	public int getPieceRows() {
+		return pieceRows;
+	}
+
+	/**
+	 * Gets the number of checkers each side starts with.
+	 * @return The number of checkers.
+	 */
+	public int getPieceCount() {
+		return pieceRows * size / 2;
+	}
+
+	/**
+	 * Gets the number of playable squares.
+	 * @return The number of squares.
+	 */
+	public int getSquares() {
+		return squares;
+	}
+
+	/**
+	 * Creates a String representation of the variant.
+	 * @return The name.
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,296 @@
+package core;
+
+import core.CheckerBoard.Checker;
+
+/**
+ * VariantBoards contains a packed representation of a position on the board of
+ * any Variant and the move generation that works on it
+ *
+ * A position is a long mask of X checkers, a long mask of O checkers and the
+ * side to move, with squares numbered as in Variant.  Moves are generated by
+ * shifting whole masks as in Bitboards, with the row masks and shift distances
+ * of the variant, so a larger board costs no more than the 8x8 one.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-25
+ */
+public final class VariantBoards {
+
+	/** The maximum number of moves a side can have, each checker can go at most left and right */
+	public static final int MAX_MOVES = 40;
+
+	/** Flag bit set on moves that capture a piece */
+	public static final int JUMP = 1 << 18;
+
+
+	/**
+	 * Private constructor, VariantBoards only contains static members.
+	 */
+	private VariantBoards() {
+	}
+
+	/**
+	 * Gets the mask of X checkers on a CheckerBoard.
+	 * @param board The CheckerBoard.
+	 * @return The mask of X checkers.
+	 */
+	public static long xMask(CheckerBoard board) {
+		return mask(board.getVariant(), board.getXPieces());
+	}
+
+	/**
+	 * Gets the mask of O checkers on a CheckerBoard.
+	 * @param board The CheckerBoard.
+	 * @return The mask of O checkers.
+	 */
+	public static long oMask(CheckerBoard board) {
+		return mask(board.getVariant(), board.getOPieces());
+	}
+
+	/**
+	 * Gets the mask of the uncaptured checkers of one side.
+	 * @param variant   The variant of the board.
+	 * @param pieces    The side's checkers.
+	 * @return The mask.
+	 */
+	private static long mask(Variant variant, Checker[] pieces) {
+		long mask = 0;
+		for (Checker checker : pieces) {
+			if (! checker.isCaptured()) {
+				int[] position = checker.getPosition();
+				mask |= 1L << variant.square(position[0], position[1]);
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the left for X.
+	 * @param v     The variant.
+	 * @param bits  The mask.
+	 * @return The shifted mask.
+	 */
+	public static long xLeft(Variant v, long bits) {
+		return (((bits & v.oddRows & ~v.leftEdge) << (v.half - 1)) | ((bits & v.evenRows) << v.half)) & v.board;
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the right for X.
+	 * @param v     The variant.
+	 * @param bits  The mask.
+	 * @return The shifted mask.
+	 */
+	public static long xRight(Variant v, long bits) {
+		return (((bits & v.oddRows) << v.half) | ((bits & v.evenRows & ~v.rightEdge) << (v.half + 1))) & v.board;
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the left for O.
+	 * @param v     The variant.
+	 * @param bits  The mask.
+	 * @return The shifted mask.
+	 */
+	public static long oLeft(Variant v, long bits) {
+		return ((bits & v.oddRows & ~v.leftEdge) >>> (v.half + 1)) | ((bits & v.evenRows) >>> v.half);
+	}
+
+	/**
+	 * Moves every square of a mask one step forward and to the right for O.
+	 * @param v     The variant.
+	 * @param bits  The mask.
+	 * @return The shifted mask.
+	 */
+	public static long oRight(Variant v, long bits) {
+		return ((bits & v.oddRows) >>> v.half) | ((bits & v.evenRows & ~v.rightEdge) >>> (v.half - 1));
+	}
+
+	/**
+	 * Counts the moves of one side, whichever side is to move.
+	 * @param v     The variant.
+	 * @param x     The mask of X checkers.
+	 * @param o     The mask of O checkers.
+	 * @param forX  If X's moves are counted.
+	 * @return The number of moves.
+	 */
+	public static int mobility(Variant v, long x, long o, boolean forX) {
+		long empty = ~(x | o);
+		if (forX) {
+			return Long.bitCount(xLeft(v, x) & empty) + Long.bitCount(xRight(v, x) & empty)
+					+ Long.bitCount(xLeft(v, xLeft(v, x) & o) & empty) + Long.bitCount(xRight(v, xRight(v, x) & o) & empty);
+		}
+		return Long.bitCount(oLeft(v, o) & empty) + Long.bitCount(oRight(v, o) & empty)
+				+ Long.bitCount(oLeft(v, oLeft(v, o) & x) & empty) + Long.bitCount(oRight(v, oRight(v, o) & x) & empty);
+	}
+
+	/**
+	 * Generates every legal move for the side to move, jumps first.
+	 * @param v         The variant.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param moves     The array to fill, at least MAX_MOVES long.
+	 * @return The number of moves generated.
+	 */
+	public static int generateMoves(Variant v, long x, long o, boolean xToMove, int[] moves) {
+		long empty = ~(x | o);
+		int h = v.half;
+		int count = 0;
+		if (xToMove) {
+			count = addJumps(v, xLeft(v, xLeft(v, x) & o) & empty, -(2 * h - 1), h - 1, h, moves, count);
+			count = addJumps(v, xRight(v, xRight(v, x) & o) & empty, -(2 * h + 1), h, h + 1, moves, count);
+			count = addMoves(v, xLeft(v, x) & empty, h - 1, h, moves, count);
+			count = addMoves(v, xRight(v, x) & empty, h, h + 1, moves, count);
+		} else {
+			count = addJumps(v, oLeft(v, oLeft(v, o) & x) & empty, 2 * h + 1, -(h + 1), -h, moves, count);
+			count = addJumps(v, oRight(v, oRight(v, o) & x) & empty, 2 * h - 1, -h, -(h - 1), moves, count);
+			count = addMoves(v, oLeft(v, o) & empty, -(h + 1), -h, moves, count);
+			count = addMoves(v, oRight(v, o) & empty, -h, -(h - 1), moves, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the jumps landing on each square of a mask.
+	 * @param v         The variant.
+	 * @param targets   The landing squares.
+	 * @param back      The distance from the landing square back to the starting square.
+	 * @param oddStep   The step taken from an odd row.
+	 * @param evenStep  The step taken from an even row.
+	 * @param moves     The array of moves.
+	 * @param count     The number of moves already in the array.
+	 * @return The new number of moves.
+	 */
+	private static int addJumps(Variant v, long targets, int back, int oddStep, int evenStep, int[] moves, int count) {
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			int from = to + back;
+			int over = from + ((v.oddRows >>> from & 1) != 0 ? oddStep : evenStep);
+			moves[count++] = encode(from, to, over);
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the single moves landing on each square of a mask.
+	 * @param v         The variant.
+	 * @param targets   The landing squares.
+	 * @param oddStep   The step taken from an odd row.
+	 * @param evenStep  The step taken from an even row.
+	 * @param moves     The array of moves.
+	 * @param count     The number of moves already in the array.
+	 * @return The new number of moves.
+	 */
+	private static int addMoves(Variant v, long targets, int oddStep, int evenStep, int[] moves, int count) {
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			//a move from an odd row always lands on an even row
+			boolean fromOdd = (v.evenRows >>> to & 1) != 0;
+			int from = to - (fromOdd ? oddStep : evenStep);
+			moves[count++] = encode(from, to, -1);
+		}
+		return count;
+	}
+
+	/**
+	 * Scores a position by material, advancement and mobility.
+	 * @param variant   The variant.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param weights   The weights of each term.
+	 * @return The score from X's point of view.
+	 */
+	public static int evaluate(Variant variant, long x, long o, EvaluationWeights weights) {
+		int material = Long.bitCount(x) - Long.bitCount(o);
+		int last = variant.getSize() - 1;
+		int advancement = 0;
+		for (int row = 0; row <= last; row++) {
+			advancement += row * Long.bitCount(x & variant.rows[row]) - (last - row) * Long.bitCount(o & variant.rows[row]);
+		}
+		int mobility = mobility(variant, x, o, true) - mobility(variant, x, o, false);
+		return weights.material * material + weights.advancement * advancement + weights.mobility * mobility;
+	}
+
+	/**
+	 * Encodes a move as an int.
+	 * @param from  The starting square.
+	 * @param to    The landing square.
+	 * @param over  The square being jumped, -1 if the move is not a jump.
+	 * @return The encoded move.
+	 */
+	public static int encode(int from, int to, int over) {
+		int move = from | (to << 6);
+		if (over >= 0) {
+			move |= (over << 12) | JUMP;
+		}
+		return move;
+	}
+
+	/**
+	 * Gets the starting square of a move.
+	 * @param move The encoded move.
+	 * @return The starting square.
+	 */
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	/**
+	 * Gets the landing square of a move.
+	 * @param move The encoded move.
+	 * @return The landing square.
+	 */
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	/**
+	 * Gets the square jumped by a move.
+	 * @param move The encoded move.
+	 * @return The jumped square.
+	 */
+	public static int over(int move) {
+		return (move >>> 12) & 63;
+	}
+
+	/**
+	 * Checks if a move captures a piece.
+	 * @param move The encoded move.
+	 * @return If the move is a jump.
+	 */
+	public static boolean isJump(int move) {
+		return (move & JUMP) != 0;
+	}
+
+	/**
+	 * Plays a move on the mask of the side to move.
+	 * @param mover The mask of the side to move.
+	 * @param move  The encoded move.
+	 * @return The new mask of the side to move.
+	 */
+	public static long moveMover(long mover, int move) {
+		return mover ^ (1L << from(move)) ^ (1L << to(move));
+	}
+
+	/**
+	 * Plays a move on the mask of the side not moving.
+	 * @param opponent  The mask of the side not moving.
+	 * @param move      The encoded move.
+	 * @return The new mask of the side not moving.
+	 */
+	public static long moveOpponent(long opponent, int move) {
+		return isJump(move) ? opponent & ~(1L << over(move)) : opponent;
+	}
+
+	/**
+	 * Converts a move to the coordinates used by CheckerBoard.
+	 * @param variant   The variant.
+	 * @param move      The encoded move.
+	 * @return The starting row, starting column, finishing row and finishing column.
+	 */
+	public static int[] toCoordinates(Variant variant, int move) {
+		return new int[] {variant.row(from(move)), variant.column(from(move)),
+				variant.row(to(move)), variant.column(to(move))};
+	}
+}
@@ -0,0 +1,123 @@
+package core;
+
+/**
+ * VariantSearch finds the best move on the board of any Variant with a fixed
+ * depth negamax search
+ *
+ * It is the engine for boards that do not fit the 32 bit masks of Bitboards.
+ * AlphaBetaSearch, its cache and its evaluator are all built on those masks,
+ * so widening them to long would slow every 8x8 search.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-25
+ */
+public class VariantSearch {
+
+	/** A score larger than any real score */
+	private static final int INFINITY = AlphaBetaSearch.WIN + 1;
+
+	/** The variant searched */
+	private final Variant variant;
+
+	/** The weights of each evaluation term */
+	private final EvaluationWeights weights;
+
+	/** The moves generated at each ply */
+	private final int[][] moveStack = new int[AlphaBetaSearch.MAX_PLY][VariantBoards.MAX_MOVES];
+
+	/** The number of positions visited by the last search */
+	private long nodes;
+
+
+	/**
+	 * Constructor
+	 * @param variant   The variant searched.
+	 * @param weights   The weights of each evaluation term.
+	 */
+	public VariantSearch(Variant variant, EvaluationWeights weights) {
+		this.variant = variant;
+		this.weights = weights;
+	}
+
+	/**
+	 * Searches a position to a fixed depth.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param depth     The depth, 1 to MAX_PLY - 1.
+	 * @return The best move, 0 if the side to move has no moves.
+	 */
+	public int search(long x, long o, boolean xToMove, int depth) {
+		nodes = 0;
+		int[] moves = moveStack[0];
+		int count = VariantBoards.generateMoves(variant, x, o, xToMove, moves);
+		int best = -INFINITY;
+		int bestMove = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int score = -negamax(xToMove ? VariantBoards.moveMover(x, move) : VariantBoards.moveOpponent(x, move),
+					xToMove ? VariantBoards.moveOpponent(o, move) : VariantBoards.moveMover(o, move),
+					! xToMove, depth - 1, -INFINITY, -best, 1);
+			if (score > best) {
+				best = score;
+				bestMove = move;
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Searches a node.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @param depth     The remaining depth.
+	 * @param alpha     The lower bound.
+	 * @param beta      The upper bound.
+	 * @param ply       The distance from the root.
+	 * @return The score from the point of view of the side to move.
+	 */
+	private int negamax(long x, long o, boolean xToMove, int depth, int alpha, int beta, int ply) {
+		nodes++;
+		int[] moves = moveStack[ply];
+		int count = VariantBoards.generateMoves(variant, x, o, xToMove, moves);
+		if (count == 0) {
+			return -AlphaBetaSearch.WIN + ply;		//no moves left, the side to move has lost
+		}
+		if (depth <= 0 || ply == AlphaBetaSearch.MAX_PLY - 1) {
+			int score = VariantBoards.evaluate(variant, x, o, weights);
+			return xToMove ? score : -score;
+		}
+		int best = -INFINITY;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int score = -negamax(xToMove ? VariantBoards.moveMover(x, move) : VariantBoards.moveOpponent(x, move),
+					xToMove ? VariantBoards.moveOpponent(o, move) : VariantBoards.moveMover(o, move),
+					! xToMove, depth - 1, -beta, -alpha, ply + 1);
+			if (score > best) {
+				best = score;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) break;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Gets the variant searched.
+	 * @return The variant.
+	 */
+	public Variant getVariant() {
+		return variant;
+	}
+
+	/**
+	 * Gets the number of positions visited by the last search.
+	 * @return The number of positions.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+}
@@ -0,0 +1,135 @@
+package core;
+
+/**
+ * Zobrist contains the hash keys used to identify packed positions
+ *
+ * The keys come from a fixed seed so a position hashes to the same value in
+ * every process, which lets hashes be stored on disk and shared.
+ *
+ * @author Tyler Filewich
+ * @version 1.2  2022-02-07
+ */
+public final class Zobrist {
+
+	/** Keys for an X checker on each square */
+	private static final long[] X_KEYS = new long[Bitboards.SQUARES];
+
+	/** Keys for an O checker on each square */
+	private static final long[] O_KEYS = new long[Bitboards.SQUARES];
+
+	/** Key added when X is the side to move */
+	private static final long X_TO_MOVE;
+
+	/** Keys for an X checker on each square of a board of up to 64 squares, the first 32 as above */
+	private static final long[] WIDE_X_KEYS = new long[64];
+
+	/** Keys for an O checker on each square of a board of up to 64 squares, the first 32 as above */
+	private static final long[] WIDE_O_KEYS = new long[64];
+
+	static {
+		long seed = 0x436865636B657273L;
+		for (int i = 0; i < Bitboards.SQUARES; i++) {
+			seed += 0x9E3779B97F4A7C15L;
+			X_KEYS[i] = mix(seed);
+			seed += 0x9E3779B97F4A7C15L;
+			O_KEYS[i] = mix(seed);
+		}
+		seed += 0x9E3779B97F4A7C15L;
+		X_TO_MOVE = mix(seed);
+		System.arraycopy(X_KEYS, 0, WIDE_X_KEYS, 0, Bitboards.SQUARES);
+		System.arraycopy(O_KEYS, 0, WIDE_O_KEYS, 0, Bitboards.SQUARES);
+		for (int i = Bitboards.SQUARES; i < 64; i++) {
+			seed += 0x9E3779B97F4A7C15L;
+			WIDE_X_KEYS[i] = mix(seed);
+			seed += 0x9E3779B97F4A7C15L;
+			WIDE_O_KEYS[i] = mix(seed);
+		}
+	}
+
+
+	/**
+	 * Private constructor, Zobrist only contains static members.
+	 */
+	private Zobrist() {
+	}
+
+	/**
+	 * Scrambles a seed into a key (the SplitMix64 finalizer).
+	 * @param z The seed.
+	 * @return The key.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Hashes a position.
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @return The hash.
+	 */
+	public static long hash(int x, int o, boolean xToMove) {
+		long hash = xToMove ? X_TO_MOVE : 0;
+		while (x != 0) {
+			hash ^= X_KEYS[Integer.numberOfTrailingZeros(x)];
+			x &= x - 1;
+		}
+		while (o != 0) {
+			hash ^= O_KEYS[Integer.numberOfTrailingZeros(o)];
+			o &= o - 1;
+		}
+		return hash;
+	}
+
+	/**
+	 * Hashes a position on the board of any variant.
+	 * A position on the 8x8 board hashes the same as with hash(int, int, boolean).
+	 * @param x         The mask of X checkers.
+	 * @param o         The mask of O checkers.
+	 * @param xToMove   If X is the side to move.
+	 * @return The hash.
+	 */
+	public static long hash(long x, long o, boolean xToMove) {
+		long hash = xToMove ? X_TO_MOVE : 0;
+		while (x != 0) {
+			hash ^= WIDE_X_KEYS[Long.numberOfTrailingZeros(x)];
+			x &= x - 1;
+		}
+		while (o != 0) {
+			hash ^= WIDE_O_KEYS[Long.numberOfTrailingZeros(o)];
+			o &= o - 1;
+		}
+		return hash;
+	}
+
+	/**
+	 * Hashes a CheckerBoard of any variant.
+	 * @param board The CheckerBoard.
+	 * @return The hash.
+	 */
+	public static long hash(CheckerBoard board) {
+		if (board.getVariant() != Variant.ENGLISH) {
+			return hash(VariantBoards.xMask(board), VariantBoards.oMask(board), Bitboards.xToMove(board));
+		}
+		return hash(Bitboards.xMask(board), Bitboards.oMask(board), Bitboards.xToMove(board));
+	}
+
+	/**
+	 * Updates a hash for a move and the change of turn that follows it.
+	 * @param hash      The hash before the move.
+	 * @param move      The encoded move.
+	 * @param xMoving   If X is making the move.
+	 * @return The hash after the move.
+	 */
+	public static long play(long hash, int move, boolean xMoving) {
+		long[] mover = xMoving ? X_KEYS : O_KEYS;
+		hash ^= mover[Bitboards.from(move)] ^ mover[Bitboards.to(move)] ^ X_TO_MOVE;
+		if (Bitboards.isJump(move)) {
+			hash ^= (xMoving ? O_KEYS : X_KEYS)[Bitboards.over(move)];
+		}
+		return hash;
+	}
+}
@@ -5,7 +5,7 @@ import java.util.Scanner;
  * CheckersTextConsole contains the console based text ui
  * 
  * @author Tyler Filewich
- * @version 1.1  2022-01-27
+ * @version 1.2  2022-03-03
  */
 public class CheckersTextConsole {
     
@@ -31,6 +31,18 @@ public class CheckersTextConsole {
     /** Phrase to get a move from a player */
     private final String turn = " - your turn.\nChoose a cell position of piece to be moved and the new position. e.g., 3a-4b";
     
+    /** Phrase offering analysis while choosing a move */
+    private final String analyze = "Enter 'A' to turn analysis on or off.";
+    
+    /** Run when the user asks for analysis to be turned on or off, null if analysis is not offered */
+    private Runnable analysisToggle;
+    
+    /** Phrase offering to take back a move while choosing a move */
+    private final String takeBack = "Enter 'T' to take back the last move.";
+    
+    /** Run when the user asks to take back a move, null if takebacks are not offered */
+    private Runnable takeBackRequest;
+    
     /** 
      * Announces the beginning of a game.
      */
@@ -77,6 +89,7 @@ public class CheckersTextConsole {
      */
     public void requestXMove() {
         System.out.println(X + turn);
+        offerCommands();
     }
     
     /** 
@@ -92,6 +105,74 @@ public class CheckersTextConsole {
      */
     public void requestOMove() {
         System.out.println(O + turn);
+        offerCommands();
+    }
+    
+    /**
+     * Tells the user how to turn analysis on or off and take back moves, if they are offered.
+     */
+    private void offerCommands() {
+        if (analysisToggle != null) {
+            System.out.println(analyze);
+        }
+        if (takeBackRequest != null) {
+            System.out.println(takeBack);
+        }
+    }
+    
+    /**
+     * Offers analysis while the user chooses a move.
+     * @param analysisToggle    Run when the user enters 'A' instead of a move, null to not offer analysis.
+     */
+    public void setAnalysisToggle(Runnable analysisToggle) {
+        this.analysisToggle = analysisToggle;
+    }
+    
+    /**
+     * Offers to take back moves while the user chooses a move.
+     * @param takeBackRequest   Run when the user enters 'T' instead of a move, null to not offer takebacks.
+     */
+    public void setTakeBackRequest(Runnable takeBackRequest) {
+        this.takeBackRequest = takeBackRequest;
+    }
+    
+    /**
+     * Announces that there is no move to take back.
+     */
+    public void rejectTakeBack() {
+        System.out.println("There is no move to take back.");
+    }
+    
+    /**
+     * Announces that analysis has been turned on.
+     */
+    public void analysisOn() {
+        System.out.println("Analysis on.");
+    }
+    
+    /**
+     * Announces that analysis has been turned off.
+     */
+    public void analysisOff() {
+        System.out.println("Analysis off.");
+    }
+    
+    /**
+     * Announces that the board cannot be analysed.
+     */
+    public void analysisUnavailable() {
+        System.out.println("Analysis is only available on an 8x8 board.");
+    }
+    
+    /**
+     * Displays one completed depth of analysis.
+     * @param depth             The depth searched.
+     * @param evaluation        The evaluation from the point of view of PlayerX.
+     * @param nodesPerSecond    The speed of the search in positions per second.
+     * @param line              The moves both players are expected to play, e.g. 3a-4b 6b-5a.
+     */
+    public void displayAnalysis(int depth, String evaluation, long nodesPerSecond, String line) {
+        System.out.printf("  depth %2d  eval %-12s %6dk nodes/s  %s%n", depth, evaluation, nodesPerSecond / 1000, line);
     }
     
 	/**
@@ -122,21 +203,45 @@ public class CheckersTextConsole {
         System.out.println(O + WON);
     }
     
+    /** 
+     * Announces a drawn game.
+     */
+    public void draw() {
+        System.out.println("The Game is a Draw");
+    }
+    
 
     /**
      * Gets a move from the user.
      * @return  The coordinates of a move.
      */
     public int[] getMove(){
+        return getMove(8);
+    }
+    
+    /**
+     * Gets a move on a board of any size from the user.
+     * @param size  The number of rows and columns of the board.
+     * @return  The coordinates of a move.
+     */
+    public int[] getMove(int size){
         int coordinates[];
         String input;
         input = scanner.next();
+        if (analysisToggle != null && input.equalsIgnoreCase("A")) {
+        	analysisToggle.run();
+        	return getMove(size);
+        }
+        if (takeBackRequest != null && input.equalsIgnoreCase("T")) {
+        	takeBackRequest.run();
+        	return getMove(size);
+        }
         try {
-        	coordinates = getCoordinates(input);
+        	coordinates = getCoordinates(input, size);
         }
         catch (IllegalArgumentException ex) {
         	rejectInput();
-        	coordinates = getMove();
+        	coordinates = getMove(size);
         }
         return coordinates;
     }
@@ -149,47 +254,55 @@ public class CheckersTextConsole {
      *          {0, 0, 0, 0} if it is not.
      */
     public int[] getCoordinates(String input) {
-        int[] coordinates;
-        int fromRow = 0;
-        int fromColumn = 0;
-        int toRow = 0;
-        int toColumn = 0;
-        char first;
-        char second;
-        char third;
-        char fourth;
-        //check input length
-        if (input.length() >= 5) {
-            first = input.charAt(0);
-            second = input.charAt(1);
-            third = input.charAt(3);
-            fourth = input.charAt(4);   
-        } else {
-        	throw new IllegalArgumentException("Invalid input.  Must be 5 characters.  Length: " + input.length());
-        }
-        //check input type
-        if (Character.isDigit(first)) {
-            fromRow = numberToRow(first);
-            if (Character.isLetter(second)) {
-                fromColumn = letterToColumn(second);
-                if (Character.isDigit(third)) {
-                    toRow = numberToRow(third); 
-                    if (Character.isLetter(fourth)) {
-                        toColumn = letterToColumn(fourth);
-                    }
-                }
-            }
+        return getCoordinates(input, 8);
+    }
+    
+    /**
+     * Converts user input to coordinates of a move on a board of any size.
+     * Rows may have two digits, e.g. 10a-9b.
+     * @param input     The user input.
+     * @param size      The number of rows and columns of the board.
+     * @return  The coordinates of a move.
+     * @throws IllegalArgumentException if the input is not a move on the board.
+     */
+    public int[] getCoordinates(String input, int size) throws IllegalArgumentException {
+        int dash = input.indexOf('-');
+        if (dash < 2 || dash > input.length() - 3) {
+        	throw new IllegalArgumentException("Invalid input.  Must be like 3a-4b: " + input);
         }
+        int[] from = getSquare(input.substring(0, dash));
+        int[] to = getSquare(input.substring(dash + 1));
+        int[] coordinates = new int[] {from[0], from[1], to[0], to[1]};
         //check input values
-        coordinates = new int[] {fromRow, fromColumn, toRow, toColumn};
         for (int i : coordinates) {
-            if (i < 1 || i > 8) {
+            if (i < 1 || i > size) {
             	throw new IllegalArgumentException("Invalid input at char: " + i);
             }
         }
         return coordinates;
     }
     
+    /**
+     * Converts one square of user input, a row number followed by a column letter, to coordinates.
+     * @param input     The square, e.g. 3a.
+     * @return  The row and column.
+     * @throws IllegalArgumentException if the input is not a square.
+     */
+    private int[] getSquare(String input) throws IllegalArgumentException {
+        int letter = 0;
+        while (letter < input.length() && Character.isDigit(input.charAt(letter))) {
+        	letter++;
+        }
+        if (letter == 0 || letter > 2 || letter >= input.length() || ! Character.isLetter(input.charAt(letter))) {
+        	throw new IllegalArgumentException("Invalid square: " + input);
+        }
+        int row = 0;
+        for (int i = 0; i < letter; i++) {
+        	row = row * 10 + numberToRow(input.charAt(i));
+        }
+        return new int[] {row, letterToColumn(input.charAt(letter))};
+    }
+    
     /**
      * Converts an integer column position to its ascii letter representation.
      * @param number    The column value.